@@ -0,0 +1,121 @@
+package dev.emi.chime.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.minecraft.nbt.ByteTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+
+/**
+ * Synthetic model JSON and item tags shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	public static JsonElement parse(String json) {
+		return new JsonParser().parse(json);
+	}
+
+	public static JsonObject overridePredicate(int n) {
+		JsonObject predicate = new JsonObject();
+		predicate.addProperty("custom_model_data", n);
+		predicate.addProperty("name", "Sword " + n);
+		JsonObject nbt = new JsonObject();
+		nbt.addProperty("Damage", "<=" + (n % 100));
+		predicate.add("nbt", nbt);
+		if (n % 3 == 0) {
+			JsonObject entity = new JsonObject();
+			entity.addProperty("hand", n % 2 == 0 ? "main" : "off");
+			predicate.add("entity", entity);
+		}
+		if (n % 5 == 0) {
+			JsonObject dimension = new JsonObject();
+			dimension.addProperty("id", "minecraft:the_nether");
+			dimension.addProperty("ultrawarm", true);
+			predicate.add("dimension", dimension);
+		}
+		return predicate;
+	}
+
+	public static JsonObject model(int overrides) {
+		return model(overrides, 0);
+	}
+
+	public static JsonObject model(int overrides, int first) {
+		JsonObject model = new JsonObject();
+		model.addProperty("parent", "item/handheld");
+		JsonArray array = new JsonArray();
+		for (int i = first; i < first + overrides; i++) {
+			JsonObject override = new JsonObject();
+			override.add("predicate", overridePredicate(i));
+			override.addProperty("model", "item/sword_" + i);
+			array.add(override);
+		}
+		model.add("overrides", array);
+		return model;
+	}
+
+	public static CompoundTag smallTag() {
+		CompoundTag tag = new CompoundTag();
+		tag.putInt("Damage", 5);
+		CompoundTag display = new CompoundTag();
+		display.putString("Name", "{\"text\":\"Sword\"}");
+		tag.put("display", display);
+		ListTag enchantments = new ListTag();
+		CompoundTag sharpness = new CompoundTag();
+		sharpness.putString("id", "minecraft:sharpness");
+		sharpness.putShort("lvl", (short) 5);
+		enchantments.add(sharpness);
+		tag.put("Enchantments", enchantments);
+		return tag;
+	}
+
+	public static CompoundTag deepTag(int depth) {
+		CompoundTag tag = new CompoundTag();
+		tag.putInt("value", depth);
+		for (int i = 0; i < depth; i++) {
+			CompoundTag parent = new CompoundTag();
+			parent.putInt("value", i);
+			parent.put("child", tag);
+			tag = parent;
+		}
+		return tag;
+	}
+
+	public static String deepFilter(int depth) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			sb.append("{\"child\":");
+		}
+		sb.append("{\"value\":\"[1..").append(depth).append("]\"}");
+		for (int i = 0; i < depth; i++) {
+			sb.append("}");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return a shulker box style tag with a full {@code BlockEntityTag.Items} list, the last slot holding a diamond
+	 */
+	public static CompoundTag shulkerTag(int slots) {
+		ListTag items = new ListTag();
+		for (int i = 0; i < slots; i++) {
+			CompoundTag item = new CompoundTag();
+			item.put("Slot", ByteTag.of((byte) i));
+			item.put("id", StringTag.of(i == slots - 1 ? "minecraft:diamond" : "minecraft:stone"));
+			item.put("Count", ByteTag.of((byte) 64));
+			items.add(item);
+		}
+		CompoundTag blockEntity = new CompoundTag();
+		blockEntity.put("Items", items);
+		CompoundTag tag = new CompoundTag();
+		tag.put("BlockEntityTag", blockEntity);
+		return tag;
+	}
+}
@@ -0,0 +1,55 @@
+package dev.emi.chime.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.emi.chime.NbtMatcher;
+import net.minecraft.nbt.CompoundTag;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NbtMatcherBenchmark {
+	private static final int DEPTH = 8;
+	private static final int SLOTS = 27;
+	private CompoundTag small, deep, shulker;
+	private NbtMatcher smallMatcher, deepMatcher, shulkerMatcher;
+
+	@Setup
+	public void setup() {
+		small = BenchmarkData.smallTag();
+		deep = BenchmarkData.deepTag(DEPTH);
+		shulker = BenchmarkData.shulkerTag(SLOTS);
+		smallMatcher = NbtMatcher.compile(BenchmarkData.parse("{\"Damage\":\"<=10\",\"Enchantments\":[{\"id\":\"minecraft:sharpness\"}]}"));
+		deepMatcher = NbtMatcher.compile(BenchmarkData.parse(BenchmarkData.deepFilter(DEPTH)));
+		shulkerMatcher = NbtMatcher.compile(BenchmarkData.parse("{\"BlockEntityTag\":{\"Items\":[{\"id\":\"minecraft:diamond\",\"Count\":\">=32\"}]}}"));
+	}
+
+	@Benchmark
+	public boolean matchSmall() {
+		return smallMatcher.matches(small);
+	}
+
+	@Benchmark
+	public boolean matchDeep() {
+		return deepMatcher.matches(deep);
+	}
+
+	@Benchmark
+	public boolean matchShulkerItems() {
+		return shulkerMatcher.matches(shulker);
+	}
+}
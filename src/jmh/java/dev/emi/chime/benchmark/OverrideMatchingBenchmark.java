@@ -0,0 +1,71 @@
+package dev.emi.chime.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.JsonObject;
+
+import dev.emi.chime.CustomPredicateParser;
+import dev.emi.chime.CustomPredicateSet;
+import dev.emi.chime.PredicateContext;
+import net.minecraft.Bootstrap;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.text.LiteralText;
+
+/**
+ * Selects an override from a synthetic override list the way ModelOverrideList does, the stack
+ * only matching the last override so every list is scanned in full. The last override has no
+ * entity or dimension predicates, which can't match without an entity or world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverrideMatchingBenchmark {
+	@Param({"10", "100", "1000"})
+	public int overrides;
+	private CustomPredicateSet[] sets;
+	private ItemStack stack;
+
+	@Setup
+	public void setup() {
+		Bootstrap.initialize();
+		sets = new CustomPredicateSet[overrides];
+		for (int i = 0; i < overrides; i++) {
+			JsonObject predicate = BenchmarkData.overridePredicate(i);
+			if (i == overrides - 1) {
+				predicate.remove("entity");
+				predicate.remove("dimension");
+			}
+			sets[i] = CustomPredicateParser.parse(predicate);
+		}
+		stack = new ItemStack(Items.DIAMOND_SWORD);
+		stack.setCustomName(new LiteralText("Sword " + (overrides - 1)));
+		stack.getOrCreateTag().putInt("Damage", 0);
+	}
+
+	@Benchmark
+	public int selectOverride() {
+		PredicateContext context = PredicateContext.prepare(null, null);
+		for (int i = 0; i < sets.length; i++) {
+			if (sets[i].matches(stack, context)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
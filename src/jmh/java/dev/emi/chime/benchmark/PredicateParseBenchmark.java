@@ -0,0 +1,85 @@
+package dev.emi.chime.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import dev.emi.chime.CustomPredicateParser;
+import dev.emi.chime.CustomPredicateSet;
+import net.minecraft.Bootstrap;
+
+/**
+ * Parses the custom predicates of every override across a set of generated model files, once on the
+ * calling thread and once spread over the common fork-join pool, as a resource reload could. Each file
+ * has its own names, while nbt filters repeat every 100 overrides as they would across a real pack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateParseBenchmark {
+	private static final int OVERRIDES_PER_MODEL = 10;
+	@Param({"1000", "40000"})
+	public int models;
+	private List<JsonArray> files;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		Bootstrap.initialize();
+		files = Lists.newArrayList();
+		for (int i = 0; i < models; i++) {
+			files.add(BenchmarkData.model(OVERRIDES_PER_MODEL, i * OVERRIDES_PER_MODEL).getAsJsonArray("overrides"));
+		}
+	}
+
+	/**
+	 * Every invocation binds every value again, as the first load of a pack would
+	 */
+	@Setup(Level.Invocation)
+	public void clearPools() {
+		CustomPredicateParser.clearPools();
+	}
+
+	@Benchmark
+	public void parseSequential(Blackhole blackhole) {
+		for (JsonArray overrides : files) {
+			blackhole.consume(parse(overrides));
+		}
+	}
+
+	@Benchmark
+	public void parseParallel(Blackhole blackhole) {
+		blackhole.consume(files.parallelStream().map(PredicateParseBenchmark::parse).toArray());
+	}
+
+	private static CustomPredicateSet[] parse(JsonArray overrides) {
+		CustomPredicateSet[] sets = new CustomPredicateSet[overrides.size()];
+		int i = 0;
+		for (JsonElement override : overrides) {
+			JsonObject predicate = override.getAsJsonObject().getAsJsonObject("predicate");
+			CustomPredicateParser.strip(predicate);
+			sets[i++] = CustomPredicateParser.parse(predicate);
+		}
+		return sets;
+	}
+}
@@ -0,0 +1,38 @@
+package dev.emi.chime.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.emi.chime.DoubleRange;
+import dev.emi.chime.LongRange;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeParseBenchmark {
+	@Param({">=5", "<10", "[1..10]", "(-5..5]", "1..64", "42"})
+	public String range;
+
+	@Benchmark
+	public LongRange parseLong() {
+		return LongRange.parse(range);
+	}
+
+	@Benchmark
+	public DoubleRange parseDouble() {
+		return DoubleRange.parse(range);
+	}
+}
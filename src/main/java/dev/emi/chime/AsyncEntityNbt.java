@@ -0,0 +1,171 @@
+package dev.emi.chime;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.Entity;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.util.hit.EntityHitResult;
+import net.minecraft.util.hit.HitResult;
+
+/**
+ * Opt-in evaluation of entity NBT predicates for the client player and the crosshair entity on a
+ * background thread. Their tags are snapshotted each client tick and every live {@link EntityNbtMatcher}
+ * is evaluated against them off thread; the render thread reads the last published results, which
+ * lag by up to a tick, and evaluates synchronously for any other entity.
+ */
+public final class AsyncEntityNbt {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	private static final Set<EntityNbtMatcher> MATCHERS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	// Guarded by MATCHERS, slots are only reused in a new generation so results from an older one are ignored
+	private static final BitSet SLOTS = new BitSet();
+	private static volatile int generation;
+	private static ExecutorService executor;
+	private static Future<?> pending;
+	private static volatile Results results;
+
+	private AsyncEntityNbt() {
+	}
+
+	/**
+	 * Creates a matcher with a free slot for its results, tracking it for background evaluation while it's reachable
+	 */
+	static EntityNbtMatcher track(IntFunction<EntityNbtMatcher> factory) {
+		synchronized (MATCHERS) {
+			int slot = SLOTS.nextClearBit(0);
+			EntityNbtMatcher matcher = factory.apply(slot);
+			SLOTS.set(slot);
+			MATCHERS.add(matcher);
+			return matcher;
+		}
+	}
+
+	/**
+	 * Frees the slots of matchers that have been collected, called once models are reloaded.
+	 */
+	static void recycleSlots() {
+		synchronized (MATCHERS) {
+			SLOTS.clear();
+			for (EntityNbtMatcher matcher : MATCHERS) {
+				SLOTS.set(matcher.getSlot());
+			}
+			generation++;
+		}
+		results = null;
+	}
+
+	public static boolean matches(EntityNbtMatcher matcher, Entity entity) {
+		Results results = AsyncEntityNbt.results;
+		if (results != null && ChimeConfig.asyncEntityNbt && results.generation == generation && results.evaluated.get(matcher.getSlot())) {
+			if (entity == results.player) {
+				return results.playerMatches.get(matcher.getSlot());
+			} else if (entity == results.target) {
+				return results.targetMatches.get(matcher.getSlot());
+			}
+		}
+		return matcher.matches(entity);
+	}
+
+	/**
+	 * Snapshots the player and crosshair entity, called at the end of each client tick.
+	 */
+	static void tick(MinecraftClient client) {
+		if (!ChimeConfig.asyncEntityNbt || client.player == null) {
+			results = null;
+			return;
+		}
+		if (pending != null && !pending.isDone()) {
+			return;
+		}
+		EntityNbtMatcher[] matchers;
+		int generation;
+		synchronized (MATCHERS) {
+			matchers = MATCHERS.toArray(new EntityNbtMatcher[MATCHERS.size()]);
+			generation = AsyncEntityNbt.generation;
+		}
+		if (matchers.length == 0) {
+			return;
+		}
+		long projection = 0;
+		for (EntityNbtMatcher matcher : matchers) {
+			projection |= matcher.getProjection();
+		}
+		Entity player = client.player;
+		HitResult hit = client.crosshairTarget;
+		Entity target = hit != null && hit.getType() == HitResult.Type.ENTITY ? ((EntityHitResult) hit).getEntity() : null;
+		CompoundTag playerTag = snapshot(player, projection);
+		CompoundTag targetTag = target == null ? null : snapshot(target, projection);
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Chime Entity NBT");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		pending = executor.submit(() -> {
+			try {
+				BitSet evaluated = new BitSet();
+				for (EntityNbtMatcher matcher : matchers) {
+					evaluated.set(matcher.getSlot());
+				}
+				BitSet playerMatches = evaluate(matchers, playerTag);
+				BitSet targetMatches = targetTag == null ? new BitSet() : evaluate(matchers, targetTag);
+				results = new Results(player, target, generation, evaluated, playerMatches, targetMatches);
+			} catch (RuntimeException e) {
+				LOGGER.error("Failed to evaluate entity NBT predicates", e);
+				results = null;
+			}
+		});
+	}
+
+	static void clear() {
+		results = null;
+	}
+
+	private static CompoundTag snapshot(Entity entity, long projection) {
+		CompoundTag tag = new CompoundTag();
+		if (EntityTagProjection.supports(entity, projection)) {
+			EntityTagProjection.write(entity, tag, projection);
+			return tag;
+		}
+		return entity.toTag(tag);
+	}
+
+	private static BitSet evaluate(EntityNbtMatcher[] matchers, CompoundTag tag) {
+		BitSet matches = new BitSet();
+		for (EntityNbtMatcher matcher : matchers) {
+			if (matcher.getMatcher().matches(tag)) {
+				matches.set(matcher.getSlot());
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Immutable once published, only valid for the matchers in {@code evaluated} during its generation.
+	 */
+	private static final class Results {
+		private final Entity player, target;
+		private final int generation;
+		private final BitSet evaluated, playerMatches, targetMatches;
+
+		private Results(Entity player, Entity target, int generation, BitSet evaluated, BitSet playerMatches, BitSet targetMatches) {
+			this.player = player;
+			this.target = target;
+			this.generation = generation;
+			this.evaluated = evaluated;
+			this.playerMatches = playerMatches;
+			this.targetMatches = targetMatches;
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package dev.emi.chime;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import dev.emi.chime.ChimeMain.BooleanPredicateFunction;
+import dev.emi.chime.ChimeMain.CustomModelPredicate;
+import dev.emi.chime.ChimeMain.StringInputFunction;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * A custom predicate paired with its parsed value. Primitive predicates are bound to their
+ * primitive function and value directly so evaluation never boxes.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public abstract class BoundPredicate {
+	private static final Set<Cached> CACHED = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private static final Set<Refreshed> REFRESHED = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	protected final CustomModelPredicate predicate;
+
+	private BoundPredicate(CustomModelPredicate<?> predicate) {
+		this.predicate = predicate;
+	}
+
+	public static BoundPredicate of(CustomModelPredicate<?> predicate, Object value) {
+		return new OfObject(predicate, value);
+	}
+
+	public static BoundPredicate of(CustomModelPredicate<?> predicate, BooleanPredicateFunction function, boolean value) {
+		return new OfBoolean(predicate, function, value);
+	}
+
+	public static BoundPredicate of(CustomModelPredicate<?> predicate, StringInputFunction input, StringPattern pattern) {
+		return new OfPattern(predicate, input, pattern);
+	}
+
+	/**
+	 * Reuses the last result until a tracked input changes, only on the render thread in the client world
+	 */
+	public static BoundPredicate cached(BoundPredicate bound) {
+		int inputs = bound.getPredicate().getInputs();
+		if (!PredicateInput.isTracked(inputs) || bound.getPredicate().getCost() == PredicateCost.TRIVIAL) {
+			return bound;
+		}
+		Cached cached = new Cached(bound, inputs);
+		CACHED.add(cached);
+		return cached;
+	}
+
+	/**
+	 * Serves results for the predicate's refresh interval in ticks, only on the render thread in the client world
+	 */
+	public static BoundPredicate refreshed(BoundPredicate bound) {
+		int inputs = bound.getPredicate().getInputs();
+		int interval = bound.getPredicate().getRefreshInterval();
+		if (interval <= PredicateRefresh.EVERY_FRAME || PredicateInput.isTracked(inputs)) {
+			return bound;
+		}
+		Refreshed refreshed = new Refreshed(bound, inputs, interval);
+		REFRESHED.add(refreshed);
+		return refreshed;
+	}
+
+	/**
+	 * Drops cached results and the stacks and entities they reference.
+	 */
+	public static void clearCaches() {
+		synchronized (CACHED) {
+			for (Cached cached : CACHED) {
+				cached.clear();
+			}
+		}
+		synchronized (REFRESHED) {
+			for (Refreshed refreshed : REFRESHED) {
+				refreshed.clear();
+			}
+		}
+	}
+
+	public CustomModelPredicate<?> getPredicate() {
+		return predicate;
+	}
+
+	public abstract Object getValue();
+
+	public abstract boolean matches(ItemStack stack, PredicateContext context);
+
+	void emit(PredicateCompiler compiler) {
+		compiler.emitBound(this);
+	}
+
+	private static final class OfObject extends BoundPredicate {
+		private final Object value;
+
+		private OfObject(CustomModelPredicate<?> predicate, Object value) {
+			super(predicate);
+			this.value = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return value;
+		}
+
+		@Override
+		public boolean matches(ItemStack stack, PredicateContext context) {
+			return predicate.matches(stack, context, value);
+		}
+
+		@Override
+		void emit(PredicateCompiler compiler) {
+			if (predicate.isPlain()) {
+				compiler.emitObject(predicate.getFunction(), value);
+			} else {
+				compiler.emitBound(this);
+			}
+		}
+	}
+
+	private static final class OfBoolean extends BoundPredicate {
+		private final BooleanPredicateFunction function;
+		private final boolean value;
+
+		private OfBoolean(CustomModelPredicate<?> predicate, BooleanPredicateFunction function, boolean value) {
+			super(predicate);
+			this.function = function;
+			this.value = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return value;
+		}
+
+		@Override
+		public boolean matches(ItemStack stack, PredicateContext context) {
+			return function.matches(stack, context, value);
+		}
+
+		@Override
+		void emit(PredicateCompiler compiler) {
+			compiler.emitBoolean(function, value);
+		}
+	}
+
+	private static final class OfPattern extends BoundPredicate {
+		private final StringInputFunction input;
+		private final StringPattern pattern;
+
+		private OfPattern(CustomModelPredicate<?> predicate, StringInputFunction input, StringPattern pattern) {
+			super(predicate);
+			this.input = input;
+			this.pattern = pattern;
+		}
+
+		@Override
+		public Object getValue() {
+			return pattern.getPattern();
+		}
+
+		@Override
+		public boolean matches(ItemStack stack, PredicateContext context) {
+			return pattern.matches(input.get(stack, context));
+		}
+
+		@Override
+		void emit(PredicateCompiler compiler) {
+			compiler.emitPattern(input, pattern);
+		}
+	}
+
+	private static final class Cached extends BoundPredicate {
+		private final BoundPredicate delegate;
+		private final int inputs;
+		private ItemStack stack;
+		private CompoundTag tag;
+		private LivingEntity entity;
+		private long version = -1;
+		private boolean result;
+
+		private Cached(BoundPredicate delegate, int inputs) {
+			super(delegate.predicate);
+			this.delegate = delegate;
+			this.inputs = inputs;
+		}
+
+		@Override
+		public Object getValue() {
+			return delegate.getValue();
+		}
+
+		@Override
+		public boolean matches(ItemStack stack, PredicateContext context) {
+			if (!context.isClientWorld() || !ChimeClient.isRenderThread()) {
+				return delegate.matches(stack, context);
+			}
+			long version = context.getVersion(inputs);
+			boolean byTag = (inputs & PredicateInput.STACK_TAG) != 0;
+			ItemStack keyStack = (inputs & (PredicateInput.STACK | PredicateInput.STACK_TAG)) != 0 ? stack : null;
+			CompoundTag keyTag = byTag ? stack.getTag() : null;
+			LivingEntity keyEntity = (inputs & PredicateInput.ENTITY) != 0 ? context.getEntity() : null;
+			if (version != this.version || keyStack != this.stack || keyTag != this.tag || keyEntity != this.entity) {
+				if (keyTag != null) {
+					// Mutating the tag in place has to advance the version before this result is reused
+					NbtMatchCache.watch(keyTag);
+				}
+				result = delegate.matches(stack, context);
+				this.version = version;
+				this.stack = keyStack;
+				this.tag = keyTag;
+				this.entity = keyEntity;
+			}
+			return result;
+		}
+
+		@Override
+		void emit(PredicateCompiler compiler) {
+			// Compiled sets check the value directly, nbt and name keep their own caches on the tag
+			delegate.emit(compiler);
+		}
+
+		private void clear() {
+			version = -1;
+			stack = null;
+			tag = null;
+			entity = null;
+		}
+	}
+
+	private static final class Refreshed extends BoundPredicate {
+		private static final Object NO_ENTITY = new Object();
+		private final BoundPredicate delegate;
+		private final int inputs, interval;
+		private final boolean byStack;
+		// Keyed by the stack when its tag is an input, otherwise by the entity
+		private final Map<Object, Result> results = new WeakHashMap<>();
+
+		private Refreshed(BoundPredicate delegate, int inputs, int interval) {
+			super(delegate.predicate);
+			this.delegate = delegate;
+			this.inputs = inputs;
+			this.interval = interval;
+			this.byStack = (inputs & (PredicateInput.STACK | PredicateInput.STACK_TAG)) != 0;
+		}
+
+		@Override
+		public Object getValue() {
+			return delegate.getValue();
+		}
+
+		@Override
+		public boolean matches(ItemStack stack, PredicateContext context) {
+			if (!context.isClientWorld() || !ChimeClient.isRenderThread()) {
+				return delegate.matches(stack, context);
+			}
+			LivingEntity entity = context.getEntity();
+			Object key = byStack ? stack : entity;
+			if (key == null) {
+				key = NO_ENTITY;
+			}
+			long version = context.getVersion(inputs);
+			int period = PredicateRefresh.getPeriod(key, interval, ChimeClient.getTicks());
+			Result result = results.get(key);
+			if (result == null) {
+				result = new Result();
+				results.put(key, result);
+			}
+			boolean entityChanged = byStack && !result.isEntity(entity);
+			if (!result.valid || version != result.version || period != result.period || entityChanged) {
+				result.value = delegate.matches(stack, context);
+				result.valid = true;
+				result.version = version;
+				result.period = period;
+				if (entityChanged) {
+					result.entity = entity == null ? null : new WeakReference<>(entity);
+				}
+			}
+			return result.value;
+		}
+
+		private void clear() {
+			results.clear();
+		}
+
+		/**
+		 * Holds the entity weakly, as a strong reference from a value would keep its weak key reachable
+		 */
+		private static final class Result {
+			private boolean valid, value;
+			private long version;
+			private int period;
+			private WeakReference<LivingEntity> entity;
+
+			private boolean isEntity(LivingEntity entity) {
+				return this.entity == null ? entity == null : entity != null && this.entity.get() == entity;
+			}
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package dev.emi.chime;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.lwjgl.glfw.GLFW;
+
+import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientEntityEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
+import net.fabricmc.fabric.api.resource.ResourceManagerHelper;
+import net.fabricmc.fabric.api.resource.ResourceReloadListenerKeys;
+import net.fabricmc.fabric.api.resource.SimpleSynchronousResourceReloadListener;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.options.KeyBinding;
+import net.minecraft.client.util.InputUtil;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceType;
+import net.minecraft.text.TranslatableText;
+import net.minecraft.util.Identifier;
+
+public class ChimeClient implements ClientModInitializer {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	private static final KeyBinding TOGGLE_PROFILER = new KeyBinding("key.chime.toggle_profiler", InputUtil.Type.KEYSYM, GLFW.GLFW_KEY_UNKNOWN, "key.categories.chime");
+	private static final KeyBinding DUMP_PROFILE = new KeyBinding("key.chime.dump_profile", InputUtil.Type.KEYSYM, GLFW.GLFW_KEY_UNKNOWN, "key.categories.chime");
+	private static int ticks;
+	private static int frames;
+	private static Thread renderThread;
+	private static ClientWorld world;
+
+	@Override
+	public void onInitializeClient() {
+		ChimeConfig.load();
+		PredicateProfiler.setEnabled(ChimeConfig.profiler);
+		if (ChimeConfig.predicateCache) {
+			PredicateCache.setDirectory(FabricLoader.getInstance().getGameDir().resolve(".cache").resolve("chime"));
+		}
+		ResourceManagerHelper.get(ResourceType.CLIENT_RESOURCES).registerReloadListener(new SimpleSynchronousResourceReloadListener() {
+
+			@Override
+			public Identifier getFabricId() {
+				return new Identifier("chime", "models_loaded");
+			}
+
+			@Override
+			public Collection<Identifier> getFabricDependencies() {
+				return Collections.singleton(ResourceReloadListenerKeys.MODELS);
+			}
+
+			@Override
+			public void apply(ResourceManager manager) {
+				PredicateCache.save();
+				AsyncEntityNbt.recycleSlots();
+			}
+		});
+		PredicateRefresh.apply();
+		KeyBindingHelper.registerKeyBinding(TOGGLE_PROFILER);
+		KeyBindingHelper.registerKeyBinding(DUMP_PROFILE);
+		ClientTickEvents.END_CLIENT_TICK.register(client -> {
+			ticks++;
+			if (client.world != world) {
+				world = client.world;
+				onWorldChanged();
+			}
+			AsyncEntityNbt.tick(client);
+			while (TOGGLE_PROFILER.wasPressed()) {
+				PredicateProfiler.setEnabled(!PredicateProfiler.enabled);
+				message(client, new TranslatableText(PredicateProfiler.enabled ? "chime.profiler.enabled" : "chime.profiler.disabled"));
+			}
+			while (DUMP_PROFILE.wasPressed()) {
+				try {
+					Path path = PredicateProfiler.dump(client.runDirectory.toPath());
+					message(client, new TranslatableText("chime.profiler.dumped", path.getFileName().toString()));
+				} catch (IOException e) {
+					LOGGER.error("Failed to write Chime profile", e);
+				}
+			}
+		});
+		ClientEntityEvents.ENTITY_UNLOAD.register((entity, world) -> {
+			EntityTagCache.evict(entity);
+		});
+	}
+
+	private static void message(MinecraftClient client, TranslatableText text) {
+		if (client.player != null) {
+			client.player.sendMessage(text, false);
+		}
+	}
+
+	private static void onWorldChanged() {
+		EntityTagCache.clear();
+		AsyncEntityNbt.clear();
+		BoundPredicate.clearCaches();
+	}
+
+	public static void onFrame() {
+		renderThread = Thread.currentThread();
+		frames++;
+	}
+
+	public static int getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return whether called from the thread frames are rendered on, without touching render state
+	 */
+	public static boolean isRenderThread() {
+		return Thread.currentThread() == renderThread;
+	}
+
+	public static int getFrames() {
+		return frames;
+	}
+}
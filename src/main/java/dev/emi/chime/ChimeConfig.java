@@ -0,0 +1,74 @@
+package dev.emi.chime;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.collect.Maps;
+
+import net.fabricmc.loader.api.FabricLoader;
+
+/**
+ * Client options read from {@code config/chime.properties}, missing options are written back with their defaults.
+ */
+public class ChimeConfig {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	public static boolean profiler = false;
+	public static boolean adaptiveOrdering = false;
+	public static boolean asyncEntityNbt = false;
+	public static boolean compiledPredicates = false;
+	public static boolean predicateCache = false;
+	/** {@link PredicateRefresh} intervals by predicate key, from options named {@code refresh.<key>} */
+	public static Map<String, Integer> refreshIntervals = Collections.emptyMap();
+
+	public static void load() {
+		Path path = FabricLoader.getInstance().getConfigDir().resolve("chime.properties");
+		Properties properties = new Properties();
+		if (Files.exists(path)) {
+			try (Reader reader = Files.newBufferedReader(path)) {
+				properties.load(reader);
+			} catch (IOException e) {
+				LOGGER.warn("Failed to read Chime config", e);
+			}
+		}
+		int size = properties.size();
+		profiler = Boolean.parseBoolean(get(properties, "profiler", "false"));
+		adaptiveOrdering = Boolean.parseBoolean(get(properties, "adaptive_ordering", "false"));
+		asyncEntityNbt = Boolean.parseBoolean(get(properties, "async_entity_nbt", "false"));
+		compiledPredicates = Boolean.parseBoolean(get(properties, "compiled_predicates", "false"));
+		predicateCache = Boolean.parseBoolean(get(properties, "predicate_cache", "false"));
+		Map<String, Integer> intervals = Maps.newHashMap();
+		for (String name : properties.stringPropertyNames()) {
+			if (name.startsWith("refresh.")) {
+				try {
+					intervals.put(name.substring("refresh.".length()), PredicateRefresh.parse(properties.getProperty(name)));
+				} catch (IllegalArgumentException e) {
+					LOGGER.warn("Invalid refresh interval for {}", name, e);
+				}
+			}
+		}
+		refreshIntervals = intervals;
+		if (properties.size() != size) {
+			try (Writer writer = Files.newBufferedWriter(path)) {
+				properties.store(writer, "Chime client options");
+			} catch (IOException e) {
+				LOGGER.warn("Failed to write Chime config", e);
+			}
+		}
+	}
+
+	private static String get(Properties properties, String key, String def) {
+		if (!properties.containsKey(key)) {
+			properties.setProperty(key, def);
+		}
+		return properties.getProperty(key);
+	}
+}
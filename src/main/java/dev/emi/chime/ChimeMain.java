@@ -1,114 +1,112 @@
 package dev.emi.chime;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
-import com.google.common.collect.BoundType;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Range;
-import com.google.gson.JsonArray;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonParseException;
 
 import net.fabricmc.api.ModInitializer;
 import net.minecraft.block.Block;
-import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
-import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityType;
 import net.minecraft.entity.LivingEntity;
 import net.minecraft.item.ItemStack;
-import net.minecraft.nbt.AbstractListTag;
-import net.minecraft.nbt.AbstractNumberTag;
-import net.minecraft.nbt.ByteTag;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.IntTag;
-import net.minecraft.nbt.LongTag;
-import net.minecraft.nbt.ShortTag;
 import net.minecraft.nbt.StringNbtReader;
-import net.minecraft.nbt.StringTag;
-import net.minecraft.nbt.Tag;
+import net.minecraft.tag.TagGroup;
+import net.minecraft.tag.TagManager;
 import net.minecraft.util.Identifier;
-import net.minecraft.util.hit.BlockHitResult;
-import net.minecraft.util.hit.EntityHitResult;
-import net.minecraft.util.hit.HitResult;
 import net.minecraft.util.registry.Registry;
 
 // TODO move this to client
 @SuppressWarnings({"unchecked", "rawtypes"})
 public class ChimeMain implements ModInitializer {
-	public static final Map<String, CustomModelPredicate> CUSTOM_MODEL_PREDICATES = Maps.newHashMap();
+	private static final Map<String, CustomModelPredicate> REGISTERED_PREDICATES = Maps.newLinkedHashMap();
+	public static final Map<String, CustomModelPredicate> CUSTOM_MODEL_PREDICATES;
+	private static final CustomModelPredicate[] PREDICATES_BY_ID;
 
 	@Override
 	public void onInitialize() {
 	}
 
 	static {
-		register("nbt", JsonObject.class, (ItemStack stack, ClientWorld world, LivingEntity entity, JsonObject value) -> {
+		register("nbt", NbtMatcher.class, (ItemStack stack, ClientWorld world, LivingEntity entity, NbtMatcher value) -> {
 			if (stack.hasTag()) {
-				return matchesJsonObject(value, stack.getTag());
+				return NbtMatchCache.matches(value, stack.getTag());
 			}
 			return false;
 		});
-		register("name", Pattern.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Pattern value) -> {
-			return value.matcher(stack.getName().asString()).matches();
+		registerPattern("name", (ItemStack stack, PredicateContext context) -> {
+			return getNameString(stack);
 		});
 		register("dimension/id", Identifier.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Identifier value) -> {
 			return world != null && world.getRegistryKey().getValue().equals(value);
 		});
-		register("dimension/has_sky_light", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().hasSkyLight() == value;
+		registerBoolean("dimension/has_sky_light", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().hasSkyLight() == value;
 		});
-		register("dimension/has_ceiling", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().hasCeiling() == value;
+		registerBoolean("dimension/has_ceiling", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().hasCeiling() == value;
 		});
-		register("dimension/ultrawarm", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isUltrawarm() == value;
+		registerBoolean("dimension/ultrawarm", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isUltrawarm() == value;
 		});
-		register("dimension/natural", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isNatural() == value;
+		registerBoolean("dimension/natural", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isNatural() == value;
 		});
-		register("dimension/has_ender_dragon_fight", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().hasEnderDragonFight() == value;
+		registerBoolean("dimension/has_ender_dragon_fight", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().hasEnderDragonFight() == value;
 		});
-		register("dimension/piglin_safe", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isPiglinSafe() == value;
+		registerBoolean("dimension/piglin_safe", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isPiglinSafe() == value;
 		});
-		register("dimension/bed_works", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isBedWorking() == value;
+		registerBoolean("dimension/bed_works", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isBedWorking() == value;
 		});
-		register("dimension/respawn_anchor_works", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isRespawnAnchorWorking() == value;
+		registerBoolean("dimension/respawn_anchor_works", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isRespawnAnchorWorking() == value;
 		});
-		register("dimension/has_raids", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().hasRaids() == value;
+		registerBoolean("dimension/has_raids", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().hasRaids() == value;
 		});
-		register("dimension/natural", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.getDimension().isNatural() == value;
+		registerBoolean("dimension/natural", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.getWorld().getDimension().isNatural() == value;
 		});
-		register("world/raining", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.isRaining() == value;
+		registerBoolean("world/raining", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.isRaining() == value;
 		});
-		register("world/thundering", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			return world != null && world.isThundering() == value;
+		registerBoolean("world/thundering", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return context.getWorld() != null && context.isThundering() == value;
 		});
-		register("entity/nbt", JsonObject.class, (ItemStack stack, ClientWorld world, LivingEntity entity, JsonObject value) -> {
+		register("entity/nbt", EntityNbtMatcher.class, (ItemStack stack, ClientWorld world, LivingEntity entity, EntityNbtMatcher value) -> {
 			if (entity != null) {
-				return matchesJsonObject(value, entity.toTag(new CompoundTag()));
+				return AsyncEntityNbt.matches(value, entity);
 			}
 			return false;
 		});
-		register("entity/x", Range.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Range value) -> {
-			return entity != null && ((Range<Float>) value).contains((float) entity.getZ());
+		register("entity/x", DoubleRange.class, (ItemStack stack, ClientWorld world, LivingEntity entity, DoubleRange value) -> {
+			return entity != null && value.contains(entity.getX());
 		});
-		register("entity/y", Range.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Range value) -> {
-			return entity != null && ((Range<Float>) value).contains((float) entity.getY());
+		register("entity/y", DoubleRange.class, (ItemStack stack, ClientWorld world, LivingEntity entity, DoubleRange value) -> {
+			return entity != null && value.contains(entity.getY());
 		});
-		register("entity/z", Range.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Range value) -> {
-			return entity != null && ((Range<Float>) value).contains((float) entity.getZ());
+		register("entity/z", DoubleRange.class, (ItemStack stack, ClientWorld world, LivingEntity entity, DoubleRange value) -> {
+			return entity != null && value.contains(entity.getZ());
 		});
 		register("entity/hand", String.class, (ItemStack stack, ClientWorld world, LivingEntity entity, String value) -> {
 			if (entity == null) {
@@ -130,233 +128,222 @@ public class ChimeMain implements ModInitializer {
 					return false;
 			}
 		});
-		register("entity/target", String.class, (ItemStack stack, ClientWorld world, LivingEntity entity, String value) -> {
-			String s = "none";
-			if (entity != null) {
-				MinecraftClient client = MinecraftClient.getInstance();
-				if (entity == client.player) {
-					HitResult result = client.crosshairTarget;
-					if (result.getType() == HitResult.Type.BLOCK) {
-						s = "block";
-					} else if (result.getType() == HitResult.Type.ENTITY) {
-						s = "entity";
-					} else if (result.getType() == HitResult.Type.MISS) {
-						s = "miss";
-					}
-				}
+		register("entity/target", String.class, (ItemStack stack, PredicateContext context, String value) -> {
+			return value.equals(context.getTargetType());
+		});
+		registerBoolean("entity/target_block/can_mine", (ItemStack stack, PredicateContext context, boolean value) -> {
+			return value == stack.isEffectiveOn(context.getTargetBlock());
+		});
+		registerRegistry("entity/target_block/id", Registry.BLOCK, TagManager::getBlocks, (ItemStack stack, PredicateContext context, RegistryMatcher<Block> value) -> {
+			return value.matches(context.getTargetBlock().getBlock(), context.getClientWorld());
+		});
+		registerRegistry("entity/target_entity/id", Registry.ENTITY_TYPE, TagManager::getEntityTypes, (ItemStack stack, PredicateContext context, RegistryMatcher<EntityType<?>> value) -> {
+			Entity hit = context.getTargetEntity();
+			return hit != null && value.matches(hit.getType(), context.getClientWorld());
+		});
+		register("entity/target_entity/nbt", EntityNbtMatcher.class, (ItemStack stack, PredicateContext context, EntityNbtMatcher value) -> {
+			Entity hit = context.getTargetEntity();
+			if (hit != null) {
+				return AsyncEntityNbt.matches(value, hit);
 			}
-			return value.equals(s);
+			return false;
 		});
-		register("entity/target_block/can_mine", Boolean.class, (ItemStack stack, ClientWorld world, LivingEntity entity, Boolean value) -> {
-			BlockState state = raycastBlockState(world, entity);
-			return value == stack.isEffectiveOn(state);
+
+		inputs(PredicateInput.STACK_TAG, "nbt", "name");
+		inputs(PredicateInput.WORLD | PredicateInput.DIMENSION, "dimension/id", "dimension/has_sky_light", "dimension/has_ceiling", "dimension/ultrawarm",
+			"dimension/natural", "dimension/has_ender_dragon_fight", "dimension/piglin_safe", "dimension/bed_works",
+			"dimension/respawn_anchor_works", "dimension/has_raids");
+		inputs(PredicateInput.WORLD | PredicateInput.WEATHER, "world/raining", "world/thundering");
+		inputs(PredicateInput.ENTITY_STATE, "entity/nbt", "entity/x", "entity/y", "entity/z");
+		inputs(PredicateInput.STACK | PredicateInput.ENTITY_STATE, "entity/hand");
+		inputs(PredicateInput.ENTITY | PredicateInput.CROSSHAIR, "entity/target");
+		inputs(PredicateInput.STACK | PredicateInput.ENTITY | PredicateInput.CROSSHAIR, "entity/target_block/can_mine");
+		inputs(PredicateInput.WORLD | PredicateInput.ENTITY | PredicateInput.CROSSHAIR, "entity/target_block/id", "entity/target_entity/id");
+		inputs(PredicateInput.ENTITY | PredicateInput.CROSSHAIR | PredicateInput.ENTITY_STATE, "entity/target_entity/nbt");
+
+		cost(PredicateCost.TRIVIAL, "dimension/id", "dimension/has_sky_light", "dimension/has_ceiling", "dimension/ultrawarm",
+			"dimension/natural", "dimension/has_ender_dragon_fight", "dimension/piglin_safe", "dimension/bed_works",
+			"dimension/respawn_anchor_works", "dimension/has_raids", "world/raining", "world/thundering", "entity/target");
+		cost(PredicateCost.CHEAP, "entity/x", "entity/y", "entity/z", "entity/hand", "entity/target_block/can_mine",
+			"entity/target_block/id", "entity/target_entity/id");
+		cost(PredicateCost.MODERATE, "name");
+		cost(PredicateCost.EXPENSIVE, "nbt", "entity/nbt", "entity/target_entity/nbt");
+
+		discriminate("dimension/id", new PredicateDiscriminator<Identifier>() {
+
+			@Override
+			public Object[] getKeys(Identifier value) {
+				return new Object[] { value };
+			}
+
+			@Override
+			public Object getKey(ItemStack stack, PredicateContext context) {
+				return context.getWorld() == null ? null : context.getWorld().getRegistryKey().getValue();
+			}
 		});
-		register("entity/target_block/id", String.class, (ItemStack stack, ClientWorld world, LivingEntity entity, String value) -> {
-			BlockState state = raycastBlockState(world, entity);
-			if (value.startsWith("#")) {
-				MinecraftClient client = MinecraftClient.getInstance();
-				Identifier id = new Identifier(value.substring(1));
-				net.minecraft.tag.Tag<Block> tag = client.world.getTagManager().getBlocks().getTag(id);
-				if (tag != null && tag.contains(state.getBlock())) {
-					return true;
+		discriminate("entity/hand", new PredicateDiscriminator<String>() {
+
+			@Override
+			public Object[] getKeys(String value) {
+				switch (value) {
+					case "main":
+						return new Object[] { "main", "both" };
+					case "off":
+						return new Object[] { "off", "both" };
+					case "either":
+						return new Object[] { "main", "off", "both" };
+					case "neither":
+					case "none":
+						return new Object[] { "none" };
+					default:
+						return new Object[0];
 				}
-			} else {
-				if (Registry.BLOCK.getId(state.getBlock()).equals(new Identifier(value))) {
-					return true;
+			}
+
+			@Override
+			public Object getKey(ItemStack stack, PredicateContext context) {
+				LivingEntity entity = context.getEntity();
+				if (entity == null) {
+					return null;
 				}
+				boolean main = entity.getMainHandStack() == stack;
+				boolean off = entity.getOffHandStack() == stack;
+				return main ? (off ? "both" : "main") : (off ? "off" : "none");
 			}
-			return false;
 		});
-		register("entity/target_entity/id", String.class, (ItemStack stack, ClientWorld world, LivingEntity entity, String value) -> {
-			MinecraftClient client = MinecraftClient.getInstance();
-			Entity hit = raycastEntity(world, entity);
-			if (hit != null) {
-				if (value.startsWith("#")) {
-					Identifier id = new Identifier(value.substring(1));
-					net.minecraft.tag.Tag<EntityType<?>> tag = client.world.getTagManager().getEntityTypes().getTag(id);
-					if (tag != null && tag.contains(hit.getType())) {
-						return true;
-					}
-				} else {
-					if (EntityType.getId(hit.getType()).equals(new Identifier(value))) {
-						return true;
-					}
+		discriminate("entity/target_block/id", new PredicateDiscriminator<RegistryMatcher<Block>>() {
+
+			@Override
+			public Object[] getKeys(RegistryMatcher<Block> value) {
+				if (value.isTag()) {
+					return null;
 				}
+				return value.getEntry() == null ? new Object[0] : new Object[] { value.getEntry() };
 			}
-			return false;
-		});
-		register("entity/target_entity/nbt", JsonObject.class, (ItemStack stack, ClientWorld world, LivingEntity entity, JsonObject value) -> {
-			Entity hit = raycastEntity(world, entity);
-			if (hit != null) {
-				return matchesJsonObject(value, hit.toTag(new CompoundTag()));
+
+			@Override
+			public Object getKey(ItemStack stack, PredicateContext context) {
+				return context.getTargetBlock().getBlock();
 			}
-			return false;
 		});
-	}
+		discriminate("name", new PredicateDiscriminator<Pattern>() {
 
-	private static BlockState raycastBlockState(ClientWorld world, LivingEntity entity) {
-		if (entity != null) {
-			MinecraftClient client = MinecraftClient.getInstance();
-			if (entity == client.player) {
-				HitResult result = client.crosshairTarget;
-				if (result.getType() == HitResult.Type.BLOCK) {
-					BlockHitResult blockResult = (BlockHitResult) result;
-					return world.getBlockState(blockResult.getBlockPos());
+			@Override
+			public Object[] getKeys(Pattern value) {
+				if (value.flags() != 0 || !StringPattern.isLiteral(value.pattern())) {
+					return null;
 				}
+				return new Object[] { value.pattern() };
 			}
+
+			@Override
+			public Object getKey(ItemStack stack, PredicateContext context) {
+				return getNameString(stack);
+			}
+		});
+
+		int id = 0;
+		PREDICATES_BY_ID = new CustomModelPredicate[REGISTERED_PREDICATES.size()];
+		for (Map.Entry<String, CustomModelPredicate> entry : REGISTERED_PREDICATES.entrySet()) {
+			entry.getValue().key = entry.getKey();
+			entry.getValue().id = id;
+			PREDICATES_BY_ID[id++] = entry.getValue();
 		}
-		return Blocks.AIR.getDefaultState();
+		CUSTOM_MODEL_PREDICATES = ImmutableMap.copyOf(REGISTERED_PREDICATES);
+		REGISTERED_PREDICATES.clear();
 	}
 
-	private static Entity raycastEntity(ClientWorld world, LivingEntity entity) {
-		if (entity != null) {
-			MinecraftClient client = MinecraftClient.getInstance();
-			if (entity == client.player) {
-				HitResult result = client.crosshairTarget;
-				if (result.getType() == HitResult.Type.ENTITY) {
-					EntityHitResult entityHitResult = (EntityHitResult) result;
-					return entityHitResult.getEntity();
-				}
-			}
+	public static CustomModelPredicate getPredicate(int id) {
+		return PREDICATES_BY_ID[id];
+	}
+
+	public static int getPredicateCount() {
+		return PREDICATES_BY_ID.length;
+	}
+
+	private static void inputs(int inputs, String... keys) {
+		for (String key : keys) {
+			REGISTERED_PREDICATES.get(key).inputs = inputs;
+		}
+	}
+
+	private static void cost(int cost, String... keys) {
+		for (String key : keys) {
+			REGISTERED_PREDICATES.get(key).cost = cost;
+		}
+	}
+
+	private static <T> void discriminate(String key, PredicateDiscriminator<T> discriminator) {
+		((CustomModelPredicate<T>) REGISTERED_PREDICATES.get(key)).discriminator = discriminator;
+	}
+
+	private static void registerBoolean(String key, BooleanPredicateFunction func) {
+		checkFrozen(key);
+		REGISTERED_PREDICATES.put(key, new BooleanCustomModelPredicate(func));
+	}
+
+	private static <T> void registerRegistry(String key, Registry<T> registry, Function<TagManager, TagGroup<T>> tags,
+			ContextualCustomModelPredicateFunction<RegistryMatcher<T>> func) {
+		checkFrozen(key);
+		REGISTERED_PREDICATES.put(key, new RegistryCustomModelPredicate<>(registry, tags, func));
+	}
+
+	private static void registerPattern(String key, StringInputFunction func) {
+		checkFrozen(key);
+		REGISTERED_PREDICATES.put(key, new PatternCustomModelPredicate(func));
+	}
+
+	private static String getNameString(ItemStack stack) {
+		// Outside the game, as in benchmarks, the mixin isn't applied
+		if ((Object) stack instanceof ItemStackWrapper) {
+			return ((ItemStackWrapper) (Object) stack).getNameString();
+		}
+		return stack.getName().getString();
+	}
+
+	private static void checkFrozen(String key) {
+		if (CUSTOM_MODEL_PREDICATES != null) {
+			throw new IllegalStateException("Custom model predicates are frozen, cannot register " + key);
 		}
-		return null;
 	}
 
 	private static <T> void register(String key, Class<T> clazz, CustomModelPredicateFunction<T> func) {
+		register(key, clazz, (ItemStack stack, PredicateContext context, T value) -> {
+			return func.matches(stack, context.getWorld(), context.getEntity(), value);
+		});
+	}
+
+	private static <T> void register(String key, Class<T> clazz, ContextualCustomModelPredicateFunction<T> func) {
+		checkFrozen(key);
 		if (clazz == Float.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new FloatCustomModelPredicate((CustomModelPredicateFunction<Float>) func));
+			REGISTERED_PREDICATES.put(key, new FloatCustomModelPredicate((ContextualCustomModelPredicateFunction<Float>) func));
 		} else if (clazz == Integer.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new IntegerCustomModelPredicate((CustomModelPredicateFunction<Integer>) func));
+			REGISTERED_PREDICATES.put(key, new IntegerCustomModelPredicate((ContextualCustomModelPredicateFunction<Integer>) func));
 		} else if (clazz == Boolean.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new BooleanCustomModelPredicate((CustomModelPredicateFunction<Boolean>) func));
+			REGISTERED_PREDICATES.put(key, new BooleanCustomModelPredicate((ContextualCustomModelPredicateFunction<Boolean>) func));
 		} else if (clazz == String.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new StringCustomModelPredicate((CustomModelPredicateFunction<String>) func));
+			REGISTERED_PREDICATES.put(key, new StringCustomModelPredicate((ContextualCustomModelPredicateFunction<String>) func));
 		} else if (clazz == Pattern.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new PatternCustomModelPredicate((CustomModelPredicateFunction<Pattern>) func));
+			REGISTERED_PREDICATES.put(key, new PatternCustomModelPredicate((ContextualCustomModelPredicateFunction<Pattern>) func));
 		} else if (clazz == CompoundTag.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new CompoundTagCustomModelPredicate((CustomModelPredicateFunction<CompoundTag>) func));
+			REGISTERED_PREDICATES.put(key, new CompoundTagCustomModelPredicate((ContextualCustomModelPredicateFunction<CompoundTag>) func));
 		} else if (clazz == Identifier.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new IdentifierCustomModelPredicate((CustomModelPredicateFunction<Identifier>) func));
-		} else if (clazz == Range.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new FloatRangeCustomModelPredicate((CustomModelPredicateFunction<Range<Float>>) func));
+			REGISTERED_PREDICATES.put(key, new IdentifierCustomModelPredicate((ContextualCustomModelPredicateFunction<Identifier>) func));
+		} else if (clazz == DoubleRange.class) {
+			REGISTERED_PREDICATES.put(key, new DoubleRangeCustomModelPredicate((ContextualCustomModelPredicateFunction<DoubleRange>) func));
+		} else if (clazz == LongRange.class) {
+			REGISTERED_PREDICATES.put(key, new LongRangeCustomModelPredicate((ContextualCustomModelPredicateFunction<LongRange>) func));
 		} else if (clazz == JsonObject.class) {
-			CUSTOM_MODEL_PREDICATES.put(key, new JsonObjectCustomModelPredicate((CustomModelPredicateFunction<JsonObject>) func));
+			REGISTERED_PREDICATES.put(key, new JsonObjectCustomModelPredicate((ContextualCustomModelPredicateFunction<JsonObject>) func));
+		} else if (clazz == NbtMatcher.class) {
+			REGISTERED_PREDICATES.put(key, new NbtCustomModelPredicate((ContextualCustomModelPredicateFunction<NbtMatcher>) func));
+		} else if (clazz == EntityNbtMatcher.class) {
+			REGISTERED_PREDICATES.put(key, new EntityNbtCustomModelPredicate((ContextualCustomModelPredicateFunction<EntityNbtMatcher>) func));
 		} else {
 			throw new UnsupportedOperationException();
 		}
 	}
 
-	private static boolean matchesJsonObject(JsonObject object, CompoundTag tag) {
-		for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
-			String key = entry.getKey();
-			JsonElement element = entry.getValue();
-			if (element.isJsonNull()) {
-				if (tag.contains(key)) {
-					return false;
-				}
-			} else {
-				if (!tag.contains(key) || !matchesJsonElement(element, tag.get(key))) {
-					return false;
-				}
-			}
-		}
-		return true;
-	}
-
-	private static boolean matchesJsonArray(JsonArray array, AbstractListTag list) {
-		outer:
-		for (JsonElement element : array) {
-			for (Object object : list) {
-				if (object instanceof Tag) {
-					Tag tag = (Tag) object;
-					if (matchesJsonElement(element, tag)) {
-						continue outer;
-					}
-				}
-			}
-			return false;
-		}
-		return true;
-	}
-
-	private static boolean matchesJsonElement(JsonElement element, Tag tag) {
-		if (element.isJsonObject()) {
-			return tag.getType() == 10 && matchesJsonObject(element.getAsJsonObject(), (CompoundTag) tag);
-		} else if (element.isJsonArray()) {
-			return tag instanceof AbstractListTag && matchesJsonArray(element.getAsJsonArray(), (AbstractListTag) tag);
-		} else {
-			JsonPrimitive primitive = element.getAsJsonPrimitive();
-			if (tag instanceof AbstractNumberTag) {
-				AbstractNumberTag number = (AbstractNumberTag) tag;
-				boolean isInt = false;
-				if (tag instanceof ByteTag || tag instanceof ShortTag || tag instanceof IntTag || tag instanceof LongTag) {
-					isInt = true;
-				}
-				if (primitive.isBoolean()) {
-					return isInt && primitive.getAsBoolean() == (number.getInt() == 1);
-				} else if (primitive.isNumber()) {
-					if (isInt) {
-						return primitive.getAsLong() == number.getLong();
-					} else {
-						return primitive.getAsDouble() == number.getDouble();
-					}
-				} else if (primitive.isString()) {
-					if (isInt) {
-						Range r = parseRange(Long.class, primitive.getAsString());
-						return r != null && r.contains(number.getLong());
-					} else {
-						Range r = parseRange(Double.class, primitive.getAsString());
-						return r != null && r.contains(number.getDouble());
-					}
-				}
-			} else if (tag instanceof StringTag) {
-				if (primitive.isString()) {
-					return primitive.getAsString().equals(((StringTag) tag).asString());
-				}
-			}
-		}
-		return false;
-	}
-
-	private static Range parseRange(Class clazz, String s) {
-		try {
-			if (s.startsWith("<=")) {
-				return Range.upTo(parseNumber(clazz, s.substring(2)), BoundType.CLOSED);
-			} else if (s.startsWith("<")) {
-				return Range.upTo(parseNumber(clazz, s.substring(1)), BoundType.OPEN);
-			} else if (s.startsWith(">=")) {
-				return Range.downTo(parseNumber(clazz, s.substring(2)), BoundType.CLOSED);
-			} else if (s.startsWith(">")) {
-				return Range.downTo(parseNumber(clazz, s.substring(1)), BoundType.CLOSED);
-			} else if (s.startsWith("[") || s.startsWith("(")) {
-				String[] parts = s.split("\\.\\.");
-				if (parts.length == 2) {
-					BoundType lt = parts[0].startsWith("[") ? BoundType.CLOSED : BoundType.OPEN;
-					BoundType rt = parts[1].endsWith("[") ? BoundType.CLOSED : BoundType.OPEN;
-					return Range.range(parseNumber(clazz, parts[0].substring(1)), lt, parseNumber(clazz, parts[1].substring(0, parts[1].length() - 1)), rt);
-				}
-			} else {
-				String[] parts = s.split("\\.\\.");
-				if (parts.length == 2) {
-					return Range.closed(parseNumber(clazz, parts[0]), parseNumber(clazz, parts[1]));
-				}
-			}
-			return Range.singleton(parseNumber(clazz, s));
-		} catch (Exception e) {
-		}
-		return null;
-	}
-
-	private static <T extends Comparable> T parseNumber(Class<T> clazz, String s) {
-		if (clazz == Double.class) {
-			return (T) Double.valueOf(s);
-		} else if (clazz == Float.class) {
-			return (T) Float.valueOf(s);
-		} else if (clazz == Long.class) {
-			return (T) Long.valueOf(s);
-		}
-		throw new UnsupportedOperationException();
-	}
 /*
 	private static boolean objectMatches(CompoundTag base, CompoundTag comp) {
 		for (String key : base.getKeys()) {
@@ -408,22 +395,107 @@ public class ChimeMain implements ModInitializer {
 	}*/
 
 	public static abstract class CustomModelPredicate<T> {
-		private CustomModelPredicateFunction<T> function;
+		private ContextualCustomModelPredicateFunction<T> function;
+		private PredicateDiscriminator<T> discriminator;
+		private int inputs = PredicateInput.ALL;
+		private int cost = PredicateCost.MODERATE;
+		private int refreshInterval = PredicateRefresh.EVERY_FRAME;
+		private String key;
+		private int id = -1;
+		private final Cache<String, BoundPredicate> pool = CacheBuilder.newBuilder().weakValues().build();
+
+		public CustomModelPredicate(ContextualCustomModelPredicateFunction<T> function) {
+			this.function = function;
+		}
 
 		public CustomModelPredicate(CustomModelPredicateFunction<T> function) {
-			this.function = function;
+			this((ItemStack stack, PredicateContext context, T value) -> {
+				return function.matches(stack, context.getWorld(), context.getEntity(), value);
+			});
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public PredicateDiscriminator<T> getDiscriminator() {
+			return discriminator;
+		}
+
+		public int getInputs() {
+			return inputs;
+		}
+
+		public int getCost() {
+			return cost;
+		}
+
+		public int getRefreshInterval() {
+			return refreshInterval;
+		}
+
+		void setRefreshInterval(int refreshInterval) {
+			if (this.refreshInterval != refreshInterval) {
+				this.refreshInterval = refreshInterval;
+				// Bound predicates are wrapped for the interval they were bound with
+				pool.invalidateAll();
+			}
+		}
+
+		void clearPool() {
+			pool.invalidateAll();
+		}
+
+		/**
+		 * Binds a value to this predicate. Equal values share one bound predicate, and with it one
+		 * set of cached results, for as long as any override references it.
+		 */
+		public final BoundPredicate bind(JsonElement element) {
+			try {
+				return pool.get(element.toString(), () -> BoundPredicate.refreshed(BoundPredicate.cached(bindValue(element))));
+			} catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+				Throwables.throwIfUnchecked(e.getCause());
+				throw new JsonParseException(e.getCause());
+			}
+		}
+
+		protected BoundPredicate bindValue(JsonElement element) {
+			return BoundPredicate.of(this, parseType(element));
 		}
 
 		public boolean matches(ItemStack stack, ClientWorld world, LivingEntity entity, T value) {
-			return function.matches(stack, world, entity, value);
+			return function.matches(stack, PredicateContext.prepare(world, entity), value);
+		}
+
+		public boolean matches(ItemStack stack, PredicateContext context, T value) {
+			return function.matches(stack, context, value);
 		}
 
 		public abstract T parseType(JsonElement element);
+
+		ContextualCustomModelPredicateFunction<T> getFunction() {
+			return function;
+		}
+
+		/**
+		 * @return whether matching is left to the function, so compiled predicates may call it directly
+		 */
+		boolean isPlain() {
+			try {
+				return getClass().getMethod("matches", ItemStack.class, PredicateContext.class, Object.class).getDeclaringClass() == CustomModelPredicate.class;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
 	}
 
 	public static class FloatCustomModelPredicate extends CustomModelPredicate<Float> {
 
-		public FloatCustomModelPredicate(CustomModelPredicateFunction<Float> function) {
+		public FloatCustomModelPredicate(ContextualCustomModelPredicateFunction<Float> function) {
 			super(function);
 		}
 
@@ -433,43 +505,41 @@ public class ChimeMain implements ModInitializer {
 		}
 	}
 
-	public static class FloatRangeCustomModelPredicate extends CustomModelPredicate<Range<Float>> {
+	public static class DoubleRangeCustomModelPredicate extends CustomModelPredicate<DoubleRange> {
 
-		public FloatRangeCustomModelPredicate(CustomModelPredicateFunction<Range<Float>> function) {
+		public DoubleRangeCustomModelPredicate(ContextualCustomModelPredicateFunction<DoubleRange> function) {
 			super(function);
 		}
 
 		@Override
-		public Range<Float> parseType(JsonElement element) {
-			String s = element.getAsString();
-			if (s.startsWith("<=")) {
-				return Range.upTo(Float.parseFloat(s.substring(2)), BoundType.CLOSED);
-			} else if (s.startsWith("<")) {
-				return Range.upTo(Float.parseFloat(s.substring(1)), BoundType.OPEN);
-			} else if (s.startsWith(">=")) {
-				return Range.downTo(Float.parseFloat(s.substring(2)), BoundType.CLOSED);
-			} else if (s.startsWith(">")) {
-				return Range.downTo(Float.parseFloat(s.substring(1)), BoundType.CLOSED);
-			} else if (s.startsWith("[") || s.startsWith("(")) {
-				String[] parts = s.split("\\.\\.");
-				if (parts.length == 2) {
-					BoundType lt = parts[0].startsWith("[") ? BoundType.CLOSED : BoundType.OPEN;
-					BoundType rt = parts[1].endsWith("[") ? BoundType.CLOSED : BoundType.OPEN;
-					return Range.range(Float.parseFloat(parts[0].substring(1)), lt, Float.parseFloat(parts[1].substring(0, parts[1].length() - 1)), rt);
-				}
-			} else {
-				String[] parts = s.split("\\.\\.");
-				if (parts.length == 2) {
-					return Range.closed(Float.parseFloat(parts[0]), Float.parseFloat(parts[1]));
-				}
+		public DoubleRange parseType(JsonElement element) {
+			DoubleRange range = DoubleRange.parse(element.getAsString());
+			if (range == null) {
+				throw new JsonParseException("Invalid range: " + element.getAsString());
+			}
+			return range;
+		}
+	}
+
+	public static class LongRangeCustomModelPredicate extends CustomModelPredicate<LongRange> {
+
+		public LongRangeCustomModelPredicate(ContextualCustomModelPredicateFunction<LongRange> function) {
+			super(function);
+		}
+
+		@Override
+		public LongRange parseType(JsonElement element) {
+			LongRange range = LongRange.parse(element.getAsString());
+			if (range == null) {
+				throw new JsonParseException("Invalid range: " + element.getAsString());
 			}
-			return Range.singleton(Float.parseFloat(s));
+			return range;
 		}
 	}
 
 	public static class IntegerCustomModelPredicate extends CustomModelPredicate<Integer> {
 
-		public IntegerCustomModelPredicate(CustomModelPredicateFunction<Integer> function) {
+		public IntegerCustomModelPredicate(ContextualCustomModelPredicateFunction<Integer> function) {
 			super(function);
 		}
 
@@ -480,11 +550,25 @@ public class ChimeMain implements ModInitializer {
 	}
 
 	public static class BooleanCustomModelPredicate extends CustomModelPredicate<Boolean> {
+		private BooleanPredicateFunction primitive;
 
-		public BooleanCustomModelPredicate(CustomModelPredicateFunction<Boolean> function) {
+		public BooleanCustomModelPredicate(ContextualCustomModelPredicateFunction<Boolean> function) {
 			super(function);
 		}
 
+		public BooleanCustomModelPredicate(BooleanPredicateFunction function) {
+			super((ItemStack stack, PredicateContext context, Boolean value) -> function.matches(stack, context, value));
+			this.primitive = function;
+		}
+
+		@Override
+		protected BoundPredicate bindValue(JsonElement element) {
+			if (primitive != null) {
+				return BoundPredicate.of(this, primitive, element.getAsBoolean());
+			}
+			return super.bindValue(element);
+		}
+
 		@Override
 		public Boolean parseType(JsonElement element) {
 			return element.getAsBoolean();
@@ -493,7 +577,7 @@ public class ChimeMain implements ModInitializer {
 
 	public static class StringCustomModelPredicate extends CustomModelPredicate<String> {
 
-		public StringCustomModelPredicate(CustomModelPredicateFunction<String> function) {
+		public StringCustomModelPredicate(ContextualCustomModelPredicateFunction<String> function) {
 			super(function);
 		}
 
@@ -504,20 +588,63 @@ public class ChimeMain implements ModInitializer {
 	}
 
 	public static class PatternCustomModelPredicate extends CustomModelPredicate<Pattern> {
+		private static final PredicateCache.Codec<StringPattern> CODEC = new PredicateCache.Codec<StringPattern>() {
+
+			@Override
+			public void write(StringPattern value, DataOutput out) throws IOException {
+				value.write(out);
+			}
 
-		public PatternCustomModelPredicate(CustomModelPredicateFunction<Pattern> function) {
+			@Override
+			public StringPattern read(DataInput in) throws IOException {
+				return StringPattern.read(in);
+			}
+		};
+		private StringInputFunction input;
+
+		public PatternCustomModelPredicate(ContextualCustomModelPredicateFunction<Pattern> function) {
 			super(function);
 		}
 
+		public PatternCustomModelPredicate(StringInputFunction input) {
+			super((ItemStack stack, PredicateContext context, Pattern value) -> value.matcher(input.get(stack, context)).matches());
+			this.input = input;
+		}
+
+		@Override
+		protected BoundPredicate bindValue(JsonElement element) {
+			if (input != null) {
+				return BoundPredicate.of(this, input, PredicateCache.get(this, element, CODEC, e -> StringPattern.compile(e.getAsString())));
+			}
+			return super.bindValue(element);
+		}
+
 		@Override
 		public Pattern parseType(JsonElement element) {
 			return Pattern.compile(element.getAsString());
 		}
 	}
 
+	public static class RegistryCustomModelPredicate<T> extends CustomModelPredicate<RegistryMatcher<T>> {
+		private final Registry<T> registry;
+		private final Function<TagManager, TagGroup<T>> tags;
+
+		public RegistryCustomModelPredicate(Registry<T> registry, Function<TagManager, TagGroup<T>> tags,
+				ContextualCustomModelPredicateFunction<RegistryMatcher<T>> function) {
+			super(function);
+			this.registry = registry;
+			this.tags = tags;
+		}
+
+		@Override
+		public RegistryMatcher<T> parseType(JsonElement element) {
+			return RegistryMatcher.parse(element.getAsString(), registry, tags);
+		}
+	}
+
 	public static class CompoundTagCustomModelPredicate extends CustomModelPredicate<CompoundTag> {
 
-		public CompoundTagCustomModelPredicate(CustomModelPredicateFunction<CompoundTag> function) {
+		public CompoundTagCustomModelPredicate(ContextualCustomModelPredicateFunction<CompoundTag> function) {
 			super(function);
 		}
 
@@ -533,7 +660,7 @@ public class ChimeMain implements ModInitializer {
 
 	public static class IdentifierCustomModelPredicate extends CustomModelPredicate<Identifier> {
 
-		public IdentifierCustomModelPredicate(CustomModelPredicateFunction<Identifier> function) {
+		public IdentifierCustomModelPredicate(ContextualCustomModelPredicateFunction<Identifier> function) {
 			super(function);
 		}
 
@@ -545,7 +672,7 @@ public class ChimeMain implements ModInitializer {
 
 	public static class JsonObjectCustomModelPredicate extends CustomModelPredicate<JsonObject> {
 
-		public JsonObjectCustomModelPredicate(CustomModelPredicateFunction<JsonObject> function) {
+		public JsonObjectCustomModelPredicate(ContextualCustomModelPredicateFunction<JsonObject> function) {
 			super(function);
 		}
 
@@ -555,7 +682,67 @@ public class ChimeMain implements ModInitializer {
 		}
 	}
 
+	public static class NbtCustomModelPredicate extends CustomModelPredicate<NbtMatcher> {
+		private static final PredicateCache.Codec<NbtMatcher> CODEC = new PredicateCache.Codec<NbtMatcher>() {
+
+			@Override
+			public void write(NbtMatcher value, DataOutput out) throws IOException {
+				value.write(out);
+			}
+
+			@Override
+			public NbtMatcher read(DataInput in) throws IOException {
+				return NbtMatcher.read(in);
+			}
+		};
+
+		public NbtCustomModelPredicate(ContextualCustomModelPredicateFunction<NbtMatcher> function) {
+			super(function);
+		}
+
+		@Override
+		public NbtMatcher parseType(JsonElement element) {
+			return PredicateCache.get(this, element, CODEC, e -> NbtMatcher.compile(e.getAsJsonObject()));
+		}
+	}
+
+	public static class EntityNbtCustomModelPredicate extends CustomModelPredicate<EntityNbtMatcher> {
+		private static final PredicateCache.Codec<EntityNbtMatcher> CODEC = new PredicateCache.Codec<EntityNbtMatcher>() {
+
+			@Override
+			public void write(EntityNbtMatcher value, DataOutput out) throws IOException {
+				value.getMatcher().write(out);
+			}
+
+			@Override
+			public EntityNbtMatcher read(DataInput in) throws IOException {
+				return EntityNbtMatcher.of(NbtMatcher.read(in));
+			}
+		};
+
+		public EntityNbtCustomModelPredicate(ContextualCustomModelPredicateFunction<EntityNbtMatcher> function) {
+			super(function);
+		}
+
+		@Override
+		public EntityNbtMatcher parseType(JsonElement element) {
+			return PredicateCache.get(this, element, CODEC, e -> EntityNbtMatcher.of(NbtMatcher.compile(e.getAsJsonObject())));
+		}
+	}
+
 	public interface CustomModelPredicateFunction<T> {
 		public boolean matches(ItemStack stack, ClientWorld world, LivingEntity entity, T value);
 	}
+
+	public interface ContextualCustomModelPredicateFunction<T> {
+		public boolean matches(ItemStack stack, PredicateContext context, T value);
+	}
+
+	public interface BooleanPredicateFunction {
+		public boolean matches(ItemStack stack, PredicateContext context, boolean value);
+	}
+
+	public interface StringInputFunction {
+		public String get(ItemStack stack, PredicateContext context);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package dev.emi.chime;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * Base class of the code generated by {@link PredicateCompiler} for a predicate set.
+ */
+public abstract class CompiledPredicates {
+
+	public abstract boolean matches(ItemStack stack, PredicateContext context);
+}
@@ -0,0 +1,65 @@
+package dev.emi.chime;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import dev.emi.chime.ChimeMain.CustomModelPredicate;
+
+/**
+ * Reads custom predicates from override JSON. Neither method modifies its input or holds any state,
+ * so overrides may be parsed concurrently.
+ */
+public class CustomPredicateParser {
+
+	public static CustomPredicateSet parse(JsonObject pred) {
+		List<BoundPredicate> predicates = Lists.newArrayList();
+		parse(pred, "", predicates);
+		return CustomPredicateSet.of(predicates);
+	}
+
+	/**
+	 * @return a copy of an override's {@code predicate} object without the top level keys read by
+	 * {@link #parse}, so vanilla only sees its own numeric predicates
+	 */
+	public static JsonObject strip(JsonObject pred) {
+		JsonObject stripped = new JsonObject();
+		for (Map.Entry<String, JsonElement> entry : pred.entrySet()) {
+			if (!isCustom(entry.getKey(), entry.getValue())) {
+				stripped.add(entry.getKey(), entry.getValue());
+			}
+		}
+		return stripped;
+	}
+
+	public static void clearPools() {
+		for (CustomModelPredicate<?> predicate : ChimeMain.CUSTOM_MODEL_PREDICATES.values()) {
+			predicate.clearPool();
+		}
+		CustomPredicateSet.clearPool();
+	}
+
+	private static boolean isCustom(String key, JsonElement value) {
+		return (value.isJsonObject() && !key.equals("nbt")) || ChimeMain.CUSTOM_MODEL_PREDICATES.containsKey(key);
+	}
+
+	private static void parse(JsonObject pred, String path, List<BoundPredicate> predicates) {
+		for (Map.Entry<String, JsonElement> entry : pred.entrySet()) {
+			String newPath = entry.getKey();
+			if (path.length() > 0) {
+				newPath = path + "/" + newPath;
+			}
+			if (entry.getValue().isJsonObject() && !entry.getKey().equals("nbt")) {
+				parse(entry.getValue().getAsJsonObject(), newPath, predicates);
+			} else {
+				CustomModelPredicate<?> predicate = ChimeMain.CUSTOM_MODEL_PREDICATES.get(newPath);
+				if (predicate != null) {
+					predicates.add(predicate.bind(entry.getValue()));
+				}
+			}
+		}
+	}
+}
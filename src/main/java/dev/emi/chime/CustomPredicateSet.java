@@ -0,0 +1,218 @@
+package dev.emi.chime;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Identifier;
+
+/**
+ * An immutable, flattened list of the custom predicates attached to a single model override.
+ */
+public final class CustomPredicateSet {
+	public static final CustomPredicateSet EMPTY = new CustomPredicateSet(new BoundPredicate[0]);
+	private static final Cache<List<BoundPredicate>, CustomPredicateSet> POOL = CacheBuilder.newBuilder().weakValues().build();
+	private static final Comparator<BoundPredicate> BY_COST = Comparator.comparingInt(bound -> bound.getPredicate().getCost());
+	private static final int REORDER_INTERVAL = 1024;
+	// Replaced by adaptive reordering on the render thread, read by any thread that evaluates overrides
+	private volatile BoundPredicate[] predicates;
+	private CompiledPredicates compiled;
+	// The predicates that don't depend on the stack, checked once for a batch of stacks in one context
+	private final BoundPredicate[] contextPredicates;
+	private int[] evaluated, rejected;
+	private int evaluations;
+	private final boolean specializable;
+	private CustomPredicateSet specialized;
+	private long specializedVersion = -1;
+
+	private CustomPredicateSet(BoundPredicate[] predicates) {
+		this.predicates = predicates;
+		List<BoundPredicate> context = Lists.newArrayList();
+		boolean specializable = false;
+		for (BoundPredicate predicate : predicates) {
+			specializable |= PredicateInput.isConstantPerWorld(predicate.getPredicate().getInputs());
+			if ((predicate.getPredicate().getInputs() & (PredicateInput.STACK | PredicateInput.STACK_TAG)) == 0) {
+				context.add(predicate);
+			}
+		}
+		this.contextPredicates = context.toArray(new BoundPredicate[context.size()]);
+		this.specializable = specializable;
+	}
+
+	/**
+	 * Bound predicates are compared by identity, as {@link ChimeMain.CustomModelPredicate#bind} interns them
+	 */
+	public static CustomPredicateSet of(List<BoundPredicate> predicates) {
+		if (predicates.isEmpty()) {
+			return EMPTY;
+		}
+		BoundPredicate[] array = predicates.toArray(new BoundPredicate[predicates.size()]);
+		Arrays.sort(array, BY_COST);
+		try {
+			return POOL.get(Arrays.asList(array), () -> {
+				CustomPredicateSet set = new CustomPredicateSet(array);
+				if (ChimeConfig.compiledPredicates) {
+					set.compiled = PredicateCompiler.compile(array);
+				}
+				return set;
+			});
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static void clearPool() {
+		POOL.invalidateAll();
+	}
+
+	public boolean isEmpty() {
+		return predicates.length == 0;
+	}
+
+	public int size() {
+		return predicates.length;
+	}
+
+	public BoundPredicate get(int index) {
+		return predicates[index];
+	}
+
+	public Object getValue(String key) {
+		for (int i = 0; i < predicates.length; i++) {
+			if (predicates[i].getPredicate().getKey().equals(key)) {
+				return predicates[i].getValue();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return this set with the predicates that are constant in the client world evaluated once for it and
+	 * removed, or {@code null} if one of them fails and the set can't match until the world changes
+	 */
+	public CustomPredicateSet specialize(PredicateContext context) {
+		if (!specializable || !context.isClientWorld() || !ChimeClient.isRenderThread()) {
+			return this;
+		}
+		long version = context.getVersion(PredicateInput.WORLD);
+		if (version != specializedVersion) {
+			specialized = evaluateConstant(context);
+			specializedVersion = version;
+		}
+		return specialized;
+	}
+
+	private CustomPredicateSet evaluateConstant(PredicateContext context) {
+		List<BoundPredicate> remaining = Lists.newArrayList();
+		for (BoundPredicate predicate : predicates) {
+			if (!PredicateInput.isConstantPerWorld(predicate.getPredicate().getInputs())) {
+				remaining.add(predicate);
+			} else if (!predicate.matches(ItemStack.EMPTY, context)) {
+				return null;
+			}
+		}
+		if (remaining.isEmpty()) {
+			return EMPTY;
+		}
+		// Not pooled or compiled again, the compiled class of the full set still matches as its constant predicates pass
+		CustomPredicateSet set = new CustomPredicateSet(remaining.toArray(new BoundPredicate[remaining.size()]));
+		set.compiled = compiled;
+		return set;
+	}
+
+	public boolean matches(ItemStack stack, PredicateContext context, Identifier modelId) {
+		if (PredicateProfiler.enabled) {
+			long start = System.nanoTime();
+			boolean result = matches(stack, context);
+			PredicateProfiler.recordOverride(modelId, System.nanoTime() - start, result);
+			return result;
+		}
+		return matches(stack, context);
+	}
+
+	public boolean matches(ItemStack stack, PredicateContext context) {
+		if (PredicateProfiler.enabled) {
+			return PredicateProfiler.matches(predicates, stack, context);
+		}
+		if (ChimeConfig.adaptiveOrdering && predicates.length > 1 && ChimeClient.isRenderThread()) {
+			return matchesAdaptive(stack, context);
+		}
+		if (compiled != null) {
+			return compiled.matches(stack, context);
+		}
+		// Adaptive reordering replaces the array, read it once in case it happens on another thread
+		BoundPredicate[] predicates = this.predicates;
+		for (int i = 0; i < predicates.length; i++) {
+			if (!predicates[i].matches(stack, context)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the predicates that don't depend on the stack match, the same for every stack in a context
+	 */
+	public boolean matchesContext(ItemStack stack, PredicateContext context) {
+		return matchesAll(contextPredicates, stack, context);
+	}
+
+	private static boolean matchesAll(BoundPredicate[] predicates, ItemStack stack, PredicateContext context) {
+		for (int i = 0; i < predicates.length; i++) {
+			if (!predicates[i].matches(stack, context)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchesAdaptive(ItemStack stack, PredicateContext context) {
+		if (evaluated == null) {
+			evaluated = new int[predicates.length];
+			rejected = new int[predicates.length];
+		}
+		if (++evaluations >= REORDER_INTERVAL) {
+			reorder();
+		}
+		for (int i = 0; i < predicates.length; i++) {
+			evaluated[i]++;
+			if (!predicates[i].matches(stack, context)) {
+				rejected[i]++;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Orders predicates by cost over observed rejection rate, which minimizes the expected cost of
+	 * rejecting when results are independent, and halves the counters so the order keeps adapting.
+	 */
+	private void reorder() {
+		evaluations = 0;
+		Integer[] order = new Integer[predicates.length];
+		double[] scores = new double[predicates.length];
+		for (int i = 0; i < predicates.length; i++) {
+			order[i] = i;
+			double rate = (rejected[i] + 1.0) / (evaluated[i] + 2.0);
+			scores[i] = PredicateCost.getWeight(predicates[i].getPredicate().getCost()) / rate;
+		}
+		Arrays.sort(order, Comparator.comparingDouble(i -> scores[i]));
+		BoundPredicate[] reordered = new BoundPredicate[predicates.length];
+		int[] newEvaluated = new int[predicates.length], newRejected = new int[predicates.length];
+		for (int i = 0; i < order.length; i++) {
+			reordered[i] = predicates[order[i]];
+			newEvaluated[i] = evaluated[order[i]] / 2;
+			newRejected[i] = rejected[order[i]] / 2;
+		}
+		predicates = reordered;
+		evaluated = newEvaluated;
+		rejected = newRejected;
+	}
+}
@@ -0,0 +1,68 @@
+package dev.emi.chime;
+
+/**
+ * A closed or half-open interval over {@code double} values, parsed from Chime's range syntax
+ * ({@code "<=5"}, {@code ">2"}, {@code "[1..10)"}, {@code "1..10"} or a single value).
+ */
+public final class DoubleRange {
+	private final double min, max;
+	private final boolean hasMin, hasMax, minInclusive, maxInclusive;
+
+	private DoubleRange(boolean hasMin, double min, boolean minInclusive, boolean hasMax, double max, boolean maxInclusive) {
+		this.hasMin = hasMin;
+		this.min = min;
+		this.minInclusive = minInclusive;
+		this.hasMax = hasMax;
+		this.max = max;
+		this.maxInclusive = maxInclusive;
+	}
+
+	public boolean contains(double value) {
+		if (hasMin && (minInclusive ? value < min : value <= min)) {
+			return false;
+		}
+		if (hasMax && (maxInclusive ? value > max : value >= max)) {
+			return false;
+		}
+		return true;
+	}
+
+	public static DoubleRange parse(String s) {
+		try {
+			if (s.startsWith("<=")) {
+				return new DoubleRange(false, 0, false, true, Double.parseDouble(s.substring(2)), true);
+			} else if (s.startsWith("<")) {
+				return new DoubleRange(false, 0, false, true, Double.parseDouble(s.substring(1)), false);
+			} else if (s.startsWith(">=")) {
+				return new DoubleRange(true, Double.parseDouble(s.substring(2)), true, false, 0, false);
+			} else if (s.startsWith(">")) {
+				return new DoubleRange(true, Double.parseDouble(s.substring(1)), false, false, 0, false);
+			}
+			int split = s.indexOf("..");
+			if (split >= 0) {
+				String left = s.substring(0, split);
+				String right = s.substring(split + 2);
+				boolean minInclusive = true, maxInclusive = true;
+				if (left.startsWith("[") || left.startsWith("(")) {
+					if (right.isEmpty()) {
+						return null;
+					}
+					minInclusive = left.startsWith("[");
+					maxInclusive = right.endsWith("]");
+					left = left.substring(1);
+					right = right.substring(0, right.length() - 1);
+				}
+				double min = Double.parseDouble(left);
+				double max = Double.parseDouble(right);
+				if (min > max) {
+					return null;
+				}
+				return new DoubleRange(true, min, minInclusive, true, max, maxInclusive);
+			}
+			double value = Double.parseDouble(s);
+			return new DoubleRange(true, value, true, true, value, true);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
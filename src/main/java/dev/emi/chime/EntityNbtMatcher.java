@@ -0,0 +1,42 @@
+package dev.emi.chime;
+
+import net.minecraft.entity.Entity;
+
+/**
+ * An NBT matcher over an entity's serialized tag, reading only the keys it needs when possible.
+ */
+public final class EntityNbtMatcher {
+	private final NbtMatcher matcher;
+	private final long projection;
+	private final int slot;
+
+	private EntityNbtMatcher(NbtMatcher matcher, long projection, int slot) {
+		this.matcher = matcher;
+		this.projection = projection;
+		this.slot = slot;
+	}
+
+	/**
+	 * @return a matcher tracked for background evaluation once it's fully constructed
+	 */
+	public static EntityNbtMatcher of(NbtMatcher matcher) {
+		long projection = EntityTagProjection.of(matcher);
+		return AsyncEntityNbt.track(slot -> new EntityNbtMatcher(matcher, projection, slot));
+	}
+
+	public NbtMatcher getMatcher() {
+		return matcher;
+	}
+
+	public long getProjection() {
+		return projection;
+	}
+
+	int getSlot() {
+		return slot;
+	}
+
+	public boolean matches(Entity entity) {
+		return matcher.matches(EntityTagCache.get(entity, projection));
+	}
+}
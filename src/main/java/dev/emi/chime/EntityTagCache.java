@@ -0,0 +1,94 @@
+package dev.emi.chime;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.entity.Entity;
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * Serializes each entity at most once per client tick for entity scoped NBT predicates.
+ * Predicates that only read well known keys get a partial tag built from {@link EntityTagProjection}.
+ * Only accessed from the client thread.
+ */
+public final class EntityTagCache {
+	private static final int MAX_ENTRIES = 64;
+	private static final Int2ObjectOpenHashMap<Entry> ENTRIES = new Int2ObjectOpenHashMap<>();
+
+	public static CompoundTag get(Entity entity) {
+		return get(entity, EntityTagProjection.FULL);
+	}
+
+	/**
+	 * @param projection a mask from {@link EntityTagProjection#of}, the returned tag is only guaranteed
+	 * to contain the keys it covers
+	 */
+	public static CompoundTag get(Entity entity, long projection) {
+		int tick = ChimeClient.getTicks();
+		Entry entry = ENTRIES.get(entity.getEntityId());
+		if (entry == null || entry.entity != entity) {
+			if (ENTRIES.size() >= MAX_ENTRIES) {
+				evictStale(tick);
+			}
+			entry = new Entry(entity);
+			ENTRIES.put(entity.getEntityId(), entry);
+		}
+		if (entry.tick != tick) {
+			entry.tag = null;
+			entry.full = false;
+			entry.projected = 0;
+			entry.tick = tick;
+		}
+		if (entry.full) {
+			return entry.tag;
+		}
+		if (!EntityTagProjection.supports(entity, projection)) {
+			entry.tag = entity.toTag(new CompoundTag());
+			entry.full = true;
+			return entry.tag;
+		}
+		if (entry.tag == null) {
+			entry.tag = new CompoundTag();
+		}
+		long missing = projection & ~entry.projected;
+		if (missing != 0) {
+			EntityTagProjection.write(entity, entry.tag, missing);
+			entry.projected |= missing;
+		}
+		return entry.tag;
+	}
+
+	static void clear() {
+		ENTRIES.clear();
+	}
+
+	static void evict(Entity entity) {
+		Entry entry = ENTRIES.get(entity.getEntityId());
+		if (entry != null && entry.entity == entity) {
+			ENTRIES.remove(entity.getEntityId());
+		}
+	}
+
+	private static void evictStale(int tick) {
+		ObjectIterator<Entry> iterator = ENTRIES.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().tick != tick) {
+				iterator.remove();
+			}
+		}
+		if (ENTRIES.size() >= MAX_ENTRIES) {
+			ENTRIES.clear();
+		}
+	}
+
+	private static class Entry {
+		private final Entity entity;
+		private CompoundTag tag;
+		private boolean full;
+		private long projected;
+		private int tick;
+
+		private Entry(Entity entity) {
+			this.entity = entity;
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package dev.emi.chime;
+
+import java.util.Set;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.nbt.FloatTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Writes individual top level entity NBT keys through direct accessors, mirroring what
+ * {@link Entity#toTag} would produce for them, so predicates reading a few well known keys
+ * don't have to serialize the whole entity.
+ */
+public final class EntityTagProjection {
+	public static final long FULL = -1L;
+	private static final String[] KEYS = new String[] {
+		"Pos", "Motion", "Rotation", "FallDistance", "Fire", "Air", "OnGround", "Invulnerable", "UUID", "CustomName",
+		"CustomNameVisible", "Silent", "NoGravity", "Tags",
+		// Living entity keys, other entities may write the same keys with different meanings
+		"Health", "HurtTime", "DeathTime", "AbsorptionAmount", "FallFlying"
+	};
+	private static final int FIRST_LIVING_KEY = 14;
+	private static final long LIVING_KEYS = -1L << FIRST_LIVING_KEY;
+	private static final Writer[] WRITERS = new Writer[] {
+		(entity, tag) -> {
+			// Riding entities save their vehicle's horizontal position
+			Entity vehicle = entity.getVehicle();
+			Entity horizontal = vehicle != null ? vehicle : entity;
+			tag.put("Pos", doubles(horizontal.getX(), entity.getY(), horizontal.getZ()));
+		},
+		(entity, tag) -> {
+			Vec3d velocity = entity.getVelocity();
+			tag.put("Motion", doubles(velocity.x, velocity.y, velocity.z));
+		},
+		(entity, tag) -> {
+			ListTag list = new ListTag();
+			list.add(FloatTag.of(entity.yaw));
+			list.add(FloatTag.of(entity.pitch));
+			tag.put("Rotation", list);
+		},
+		(entity, tag) -> tag.putFloat("FallDistance", entity.fallDistance),
+		(entity, tag) -> tag.putShort("Fire", (short) entity.getFireTicks()),
+		(entity, tag) -> tag.putShort("Air", (short) entity.getAir()),
+		(entity, tag) -> tag.putBoolean("OnGround", entity.isOnGround()),
+		(entity, tag) -> tag.putBoolean("Invulnerable", entity.isInvulnerable()),
+		(entity, tag) -> tag.putUuid("UUID", entity.getUuid()),
+		(entity, tag) -> {
+			Text name = entity.getCustomName();
+			if (name != null) {
+				tag.putString("CustomName", Text.Serializer.toJson(name));
+			}
+		},
+		(entity, tag) -> {
+			if (entity.isCustomNameVisible()) {
+				tag.putBoolean("CustomNameVisible", true);
+			}
+		},
+		(entity, tag) -> {
+			if (entity.isSilent()) {
+				tag.putBoolean("Silent", true);
+			}
+		},
+		(entity, tag) -> {
+			if (entity.hasNoGravity()) {
+				tag.putBoolean("NoGravity", true);
+			}
+		},
+		(entity, tag) -> {
+			Set<String> tags = entity.getScoreboardTags();
+			if (!tags.isEmpty()) {
+				ListTag list = new ListTag();
+				for (String s : tags) {
+					list.add(StringTag.of(s));
+				}
+				tag.put("Tags", list);
+			}
+		},
+		(entity, tag) -> tag.putFloat("Health", ((LivingEntity) entity).getHealth()),
+		(entity, tag) -> tag.putShort("HurtTime", (short) ((LivingEntity) entity).hurtTime),
+		(entity, tag) -> tag.putShort("DeathTime", (short) ((LivingEntity) entity).deathTime),
+		(entity, tag) -> tag.putFloat("AbsorptionAmount", ((LivingEntity) entity).getAbsorptionAmount()),
+		(entity, tag) -> tag.putBoolean("FallFlying", ((LivingEntity) entity).isFallFlying())
+	};
+
+	/**
+	 * @return a mask of the projected keys the matcher reads, or {@link #FULL} if it reads any
+	 * key that requires full serialization
+	 */
+	public static long of(NbtMatcher matcher) {
+		String[] keys = matcher.getReadKeys();
+		if (keys == null) {
+			return FULL;
+		}
+		long mask = 0;
+		outer:
+		for (String key : keys) {
+			for (int i = 0; i < KEYS.length; i++) {
+				if (KEYS[i].equals(key)) {
+					mask |= 1L << i;
+					continue outer;
+				}
+			}
+			return FULL;
+		}
+		return mask;
+	}
+
+	public static boolean supports(Entity entity, long mask) {
+		return mask != FULL && ((mask & LIVING_KEYS) == 0 || entity instanceof LivingEntity);
+	}
+
+	public static void write(Entity entity, CompoundTag tag, long mask) {
+		for (int i = 0; i < WRITERS.length; i++) {
+			if ((mask & (1L << i)) != 0) {
+				WRITERS[i].write(entity, tag);
+			}
+		}
+	}
+
+	private static ListTag doubles(double... values) {
+		ListTag list = new ListTag();
+		for (double d : values) {
+			list.add(DoubleTag.of(d));
+		}
+		return list;
+	}
+
+	private interface Writer {
+		void write(Entity entity, CompoundTag tag);
+	}
+}
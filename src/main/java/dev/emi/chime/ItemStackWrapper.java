@@ -0,0 +1,10 @@
+package dev.emi.chime;
+
+public interface ItemStackWrapper {
+
+	/**
+	 * @return the stack's flattened display name, reused within a frame while its tag and custom name
+	 * are unchanged
+	 */
+	public String getNameString();
+}
@@ -0,0 +1,16 @@
+package dev.emi.chime;
+
+import java.util.List;
+
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+
+public interface ModelOverrideListWrapper {
+
+	/**
+	 * Selects an override for each stack, evaluating predicates that don't depend on the stack once,
+	 * and remembers the selections in the {@link OverrideSelectionCache} for this frame.
+	 */
+	public void selectAll(List<ItemStack> stacks, ClientWorld world, LivingEntity entity);
+}
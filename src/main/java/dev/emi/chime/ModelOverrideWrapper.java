@@ -1,10 +1,10 @@
 package dev.emi.chime;
 
-import java.util.Map;
-
 public interface ModelOverrideWrapper {
 	
-	public void setCustomPredicates(Map<String, Object> map);
+	public void setCustomPredicates(CustomPredicateSet set);
+
+	public CustomPredicateSet getCustomPredicates();
 	
 	public Object getCustomPredicate(String key);
 }
@@ -0,0 +1,113 @@
+package dev.emi.chime;
+
+import net.minecraft.nbt.AbstractListTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+
+/**
+ * Reuses NBT filter results across frames for stack tags that haven't changed. Results are stored on
+ * the tag itself, so they're collected with it, and only a few matchers are kept per tag.
+ *
+ * <p>When results are first cached for a tag it and its nested compounds and lists are watched, any
+ * mutation of a watched tag advances a global version which invalidates every cached result. Watched
+ * tags are rarely mutated since stack changes usually arrive as new stacks, while the tags built every
+ * tick for entities are never watched. Mutations made directly to the arrays of array tags aren't seen.
+ */
+public final class NbtMatchCache {
+	private static final int ENTRIES = 4;
+	private static volatile long version = 1;
+
+	private NbtMatchCache() {
+	}
+
+	public static boolean matches(NbtMatcher matcher, CompoundTag tag) {
+		RequiredKeys required = matcher.getRequiredKeys();
+		if (required != null && !required.test(tag)) {
+			return false;
+		}
+		if (!ChimeClient.isRenderThread()) {
+			return matcher.matches(tag);
+		}
+		long version = NbtMatchCache.version;
+		WatchedTag watched = (WatchedTag) tag;
+		Results results = (Results) watched.getMatchResults();
+		if (results == null) {
+			results = new Results();
+			watched.setMatchResults(results);
+		}
+		if (results.version != version) {
+			results.clear(version);
+			watch(tag, version);
+		}
+		for (int i = 0; i < results.size; i++) {
+			if (results.matchers[i] == matcher) {
+				return results.values[i];
+			}
+		}
+		boolean result = matcher.matches(tag);
+		results.add(matcher, result);
+		return result;
+	}
+
+	public static long getVersion() {
+		return version;
+	}
+
+	public static void watch(CompoundTag tag) {
+		watch(tag, version);
+	}
+
+	/**
+	 * Called before any watched tag is mutated.
+	 */
+	public static void onMutation() {
+		version++;
+	}
+
+	private static void watch(Tag tag, long version) {
+		WatchedTag watched = (WatchedTag) tag;
+		if (watched.getWatchVersion() == version) {
+			return;
+		}
+		watched.setWatchVersion(version);
+		if (tag instanceof CompoundTag) {
+			CompoundTag compound = (CompoundTag) tag;
+			for (String key : compound.getKeys()) {
+				Tag child = compound.get(key);
+				if (child instanceof WatchedTag) {
+					watch(child, version);
+				}
+			}
+		} else if (tag instanceof AbstractListTag) {
+			AbstractListTag<?> list = (AbstractListTag<?>) tag;
+			for (int i = 0; i < list.size(); i++) {
+				Tag child = list.get(i);
+				if (child instanceof WatchedTag) {
+					watch(child, version);
+				}
+			}
+		}
+	}
+
+	private static final class Results {
+		private final NbtMatcher[] matchers = new NbtMatcher[ENTRIES];
+		private final boolean[] values = new boolean[ENTRIES];
+		private long version;
+		private int size, next;
+
+		private void clear(long version) {
+			this.version = version;
+			size = 0;
+			next = 0;
+		}
+
+		private void add(NbtMatcher matcher, boolean value) {
+			matchers[next] = matcher;
+			values[next] = value;
+			next = (next + 1) % ENTRIES;
+			if (size < ENTRIES) {
+				size++;
+			}
+		}
+	}
+}
@@ -0,0 +1,431 @@
+package dev.emi.chime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.nbt.AbstractListTag;
+import net.minecraft.nbt.AbstractNumberTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+
+/**
+ * A JSON NBT filter compiled once at model load into a tree of type-specialized nodes.
+ */
+public abstract class NbtMatcher {
+	private static final int BYTE = 1, SHORT = 2, INT = 3, LONG = 4, FLOAT = 5, DOUBLE = 6, BYTE_ARRAY = 7, STRING = 8, LIST = 9,
+		COMPOUND = 10, INT_ARRAY = 11, LONG_ARRAY = 12;
+	private static final int NEVER_NODE = 0, COMPOUND_NODE = 1, LIST_NODE = 2, BOOLEAN_NODE = 3, NUMBER_NODE = 4, STRING_NODE = 5;
+	private static final NbtMatcher NEVER = new NbtMatcher() {
+
+		@Override
+		public boolean matches(Tag tag) {
+			return false;
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(NEVER_NODE);
+		}
+	};
+
+	public abstract boolean matches(Tag tag);
+
+	public abstract void write(DataOutput out) throws IOException;
+
+	/**
+	 * @return the top level keys this matcher reads from a compound, or {@code null} if it isn't a compound matcher
+	 */
+	public String[] getReadKeys() {
+		return null;
+	}
+
+	/**
+	 * @return the key paths that must be present for a compound to match, or {@code null} if there are none
+	 */
+	public RequiredKeys getRequiredKeys() {
+		return null;
+	}
+
+	public static NbtMatcher compile(JsonElement element) {
+		if (element.isJsonObject()) {
+			return new CompoundMatcher(element.getAsJsonObject());
+		} else if (element.isJsonArray()) {
+			return new ListMatcher(element.getAsJsonArray());
+		} else if (element.isJsonPrimitive()) {
+			JsonPrimitive primitive = element.getAsJsonPrimitive();
+			if (primitive.isBoolean()) {
+				return new BooleanMatcher(primitive.getAsBoolean());
+			} else if (primitive.isNumber()) {
+				return new NumberMatcher(primitive.getAsLong(), primitive.getAsDouble());
+			} else {
+				return new StringMatcher(primitive.getAsString());
+			}
+		}
+		return NEVER;
+	}
+
+	public static NbtMatcher read(DataInput in) throws IOException {
+		switch (in.readByte()) {
+			case COMPOUND_NODE:
+				String[] keys = new String[in.readInt()];
+				NbtMatcher[] values = new NbtMatcher[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = in.readUTF().intern();
+					values[i] = in.readBoolean() ? read(in) : null;
+				}
+				return new CompoundMatcher(keys, values);
+			case LIST_NODE:
+				NbtMatcher[] elements = new NbtMatcher[in.readInt()];
+				for (int i = 0; i < elements.length; i++) {
+					elements[i] = read(in);
+				}
+				return new ListMatcher(elements);
+			case BOOLEAN_NODE:
+				return new BooleanMatcher(in.readBoolean());
+			case NUMBER_NODE:
+				return new NumberMatcher(in.readLong(), in.readDouble());
+			case STRING_NODE:
+				return new StringMatcher(in.readUTF());
+			default:
+				return NEVER;
+		}
+	}
+
+	private static boolean isInteger(int type) {
+		return type == BYTE || type == SHORT || type == INT || type == LONG;
+	}
+
+	private static boolean isFloating(int type) {
+		return type == FLOAT || type == DOUBLE;
+	}
+
+	private static boolean isList(int type) {
+		return type == LIST || type == BYTE_ARRAY || type == INT_ARRAY || type == LONG_ARRAY;
+	}
+
+	public static final class CompoundMatcher extends NbtMatcher {
+		private final String[] keys;
+		// A null matcher requires the key to be absent
+		private final NbtMatcher[] values;
+		private RequiredKeys required;
+		private boolean requiredComputed;
+
+		private CompoundMatcher(String[] keys, NbtMatcher[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+
+		private CompoundMatcher(JsonObject object) {
+			keys = new String[object.size()];
+			values = new NbtMatcher[keys.length];
+			int i = 0;
+			for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+				keys[i] = entry.getKey().intern();
+				values[i] = entry.getValue().isJsonNull() ? null : compile(entry.getValue());
+				i++;
+			}
+		}
+
+		@Override
+		public String[] getReadKeys() {
+			return keys.clone();
+		}
+
+		@Override
+		public RequiredKeys getRequiredKeys() {
+			if (!requiredComputed) {
+				List<String[]> paths = Lists.newArrayList();
+				collectRequired(new String[0], paths);
+				required = RequiredKeys.of(paths);
+				requiredComputed = true;
+			}
+			return required;
+		}
+
+		private void collectRequired(String[] prefix, List<String[]> paths) {
+			for (int i = 0; i < keys.length; i++) {
+				if (values[i] == null) {
+					continue;
+				}
+				String[] path = Arrays.copyOf(prefix, prefix.length + 1);
+				path[prefix.length] = keys[i];
+				int size = paths.size();
+				if (values[i] instanceof CompoundMatcher) {
+					((CompoundMatcher) values[i]).collectRequired(path, paths);
+				}
+				// Nested paths already require their parents
+				if (paths.size() == size) {
+					paths.add(path);
+				}
+			}
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(COMPOUND_NODE);
+			out.writeInt(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				out.writeUTF(keys[i]);
+				out.writeBoolean(values[i] != null);
+				if (values[i] != null) {
+					values[i].write(out);
+				}
+			}
+		}
+
+		@Override
+		public boolean matches(Tag tag) {
+			if (tag.getType() != COMPOUND) {
+				return false;
+			}
+			CompoundTag compound = (CompoundTag) tag;
+			for (int i = 0; i < keys.length; i++) {
+				Tag child = compound.get(keys[i]);
+				if (values[i] == null) {
+					if (child != null) {
+						return false;
+					}
+				} else if (child == null || !values[i].matches(child)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Requires every element to match some entry of a list. Elements that require a string {@code id}
+	 * are checked against an index of the list's compounds by id once the list is large, which is kept
+	 * for the last list indexed in the frame so other filters on the same list reuse it.
+	 */
+	public static final class ListMatcher extends NbtMatcher {
+		private static final int MIN_INDEXED_SIZE = 16;
+		private static final String ID = "id";
+		private static AbstractListTag<?> indexedList;
+		private static int indexedFrame = -1;
+		private static ListIndex index;
+		private final NbtMatcher[] elements;
+		// The id an element requires, or null if it doesn't require a string id
+		private final String[] ids;
+		private final boolean indexable;
+
+		private ListMatcher(NbtMatcher[] elements) {
+			this.elements = elements;
+			this.ids = new String[elements.length];
+			boolean indexable = false;
+			for (int i = 0; i < elements.length; i++) {
+				ids[i] = getRequiredId(elements[i]);
+				indexable |= ids[i] != null;
+			}
+			this.indexable = indexable;
+		}
+
+		private ListMatcher(JsonArray array) {
+			this(compileAll(array));
+		}
+
+		private static NbtMatcher[] compileAll(JsonArray array) {
+			NbtMatcher[] elements = new NbtMatcher[array.size()];
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = compile(array.get(i));
+			}
+			return elements;
+		}
+
+		private static String getRequiredId(NbtMatcher matcher) {
+			if (matcher instanceof CompoundMatcher) {
+				CompoundMatcher compound = (CompoundMatcher) matcher;
+				for (int i = 0; i < compound.keys.length; i++) {
+					if (compound.keys[i].equals(ID) && compound.values[i] instanceof StringMatcher) {
+						return ((StringMatcher) compound.values[i]).value;
+					}
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(LIST_NODE);
+			out.writeInt(elements.length);
+			for (NbtMatcher element : elements) {
+				element.write(out);
+			}
+		}
+
+		@Override
+		public boolean matches(Tag tag) {
+			if (!isList(tag.getType())) {
+				return false;
+			}
+			AbstractListTag<?> list = (AbstractListTag<?>) tag;
+			int size = list.size();
+			ListIndex index = null;
+			if (indexable && size >= MIN_INDEXED_SIZE && list.getElementType() == COMPOUND) {
+				index = getIndex(list);
+			}
+			outer:
+			for (int i = 0; i < elements.length; i++) {
+				if (index != null && ids[i] != null) {
+					if (matchesAny(elements[i], list, index.byId.get(ids[i])) || matchesAny(elements[i], list, index.unindexed)) {
+						continue;
+					}
+					return false;
+				}
+				for (int j = 0; j < size; j++) {
+					if (elements[i].matches(list.get(j))) {
+						continue outer;
+					}
+				}
+				return false;
+			}
+			return true;
+		}
+
+		private static boolean matchesAny(NbtMatcher matcher, AbstractListTag<?> list, int[] candidates) {
+			if (candidates != null) {
+				for (int j : candidates) {
+					if (matcher.matches(list.get(j))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		private static ListIndex getIndex(AbstractListTag<?> list) {
+			if (!ChimeClient.isRenderThread()) {
+				return new ListIndex(list);
+			}
+			int frame = ChimeClient.getFrames();
+			if (indexedList != list || indexedFrame != frame) {
+				index = new ListIndex(list);
+				indexedList = list;
+				indexedFrame = frame;
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * The positions of a compound list's entries by their string {@code id}, entries with an id of another
+	 * type are kept apart as they may still match a string matcher's range.
+	 */
+	private static final class ListIndex {
+		private final Map<String, int[]> byId;
+		private final int[] unindexed;
+
+		private ListIndex(AbstractListTag<?> list) {
+			Map<String, IntArrayList> ids = Maps.newHashMap();
+			IntArrayList unindexed = new IntArrayList();
+			for (int j = 0; j < list.size(); j++) {
+				Tag id = ((CompoundTag) list.get(j)).get(ListMatcher.ID);
+				if (id == null) {
+					continue;
+				} else if (id.getType() == STRING) {
+					ids.computeIfAbsent(id.asString(), k -> new IntArrayList()).add(j);
+				} else {
+					unindexed.add(j);
+				}
+			}
+			this.byId = Maps.newHashMapWithExpectedSize(ids.size());
+			for (Map.Entry<String, IntArrayList> entry : ids.entrySet()) {
+				byId.put(entry.getKey(), entry.getValue().toIntArray());
+			}
+			this.unindexed = unindexed.toIntArray();
+		}
+	}
+
+	public static final class BooleanMatcher extends NbtMatcher {
+		private final boolean value;
+
+		private BooleanMatcher(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(BOOLEAN_NODE);
+			out.writeBoolean(value);
+		}
+
+		@Override
+		public boolean matches(Tag tag) {
+			return isInteger(tag.getType()) && value == (((AbstractNumberTag) tag).getInt() == 1);
+		}
+	}
+
+	public static final class NumberMatcher extends NbtMatcher {
+		private final long longValue;
+		private final double doubleValue;
+
+		private NumberMatcher(long longValue, double doubleValue) {
+			this.longValue = longValue;
+			this.doubleValue = doubleValue;
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(NUMBER_NODE);
+			out.writeLong(longValue);
+			out.writeDouble(doubleValue);
+		}
+
+		@Override
+		public boolean matches(Tag tag) {
+			int type = tag.getType();
+			if (isInteger(type)) {
+				return ((AbstractNumberTag) tag).getLong() == longValue;
+			} else if (isFloating(type)) {
+				return ((AbstractNumberTag) tag).getDouble() == doubleValue;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Matches string tags by equality, and number tags by the value parsed as a range.
+	 */
+	public static final class StringMatcher extends NbtMatcher {
+		private final String value;
+		private final LongRange longRange;
+		private final DoubleRange doubleRange;
+
+		private StringMatcher(String value) {
+			this.value = value;
+			this.longRange = LongRange.parse(value);
+			this.doubleRange = DoubleRange.parse(value);
+		}
+
+		@Override
+		public void write(DataOutput out) throws IOException {
+			out.writeByte(STRING_NODE);
+			out.writeUTF(value);
+		}
+
+		@Override
+		public boolean matches(Tag tag) {
+			int type = tag.getType();
+			if (type == STRING) {
+				return value.equals(tag.asString());
+			} else if (isInteger(type)) {
+				return longRange != null && longRange.contains(((AbstractNumberTag) tag).getLong());
+			} else if (isFloating(type)) {
+				return doubleRange != null && doubleRange.contains(((AbstractNumberTag) tag).getDouble());
+			}
+			return false;
+		}
+	}
+}
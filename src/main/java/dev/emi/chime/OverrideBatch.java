@@ -0,0 +1,65 @@
+package dev.emi.chime;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.render.item.ItemModels;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.json.ModelOverrideList;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Selects model overrides ahead of time for many stacks rendered in the same world and entity context,
+ * like the slots of a screen or an item list. Stacks are grouped by override list and predicates that
+ * don't depend on the stack are evaluated once per list, the selections are then reused when the
+ * stacks render later in the same frame. Only usable on the render thread.
+ */
+public final class OverrideBatch {
+	private static boolean active;
+
+	private OverrideBatch() {
+	}
+
+	/**
+	 * @param world the world the stacks will be rendered with, {@code null} for screens
+	 * @param entity the entity the stacks will be rendered for, the client player for screens
+	 */
+	public static void prime(ItemStack[] stacks, ClientWorld world, LivingEntity entity) {
+		if (!ChimeClient.isRenderThread() || active) {
+			return;
+		}
+		ItemModels models = MinecraftClient.getInstance().getItemRenderer().getModels();
+		Map<ModelOverrideList, List<ItemStack>> groups = new IdentityHashMap<>();
+		for (ItemStack stack : stacks) {
+			if (stack == null || stack.isEmpty()) {
+				continue;
+			}
+			BakedModel model = models.getModel(stack);
+			ModelOverrideList list = model == null ? null : model.getOverrides();
+			if (list != null) {
+				groups.computeIfAbsent(list, l -> Lists.newArrayList()).add(stack);
+			}
+		}
+		active = true;
+		try {
+			for (Map.Entry<ModelOverrideList, List<ItemStack>> entry : groups.entrySet()) {
+				((ModelOverrideListWrapper) entry.getKey()).selectAll(entry.getValue(), world, entity);
+			}
+		} finally {
+			active = false;
+		}
+	}
+
+	/**
+	 * @return whether a batch is being evaluated, during which overrides only check their vanilla predicates
+	 */
+	public static boolean isActive() {
+		return active;
+	}
+}
@@ -0,0 +1,101 @@
+package dev.emi.chime;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+import dev.emi.chime.ChimeMain.CustomModelPredicate;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.client.render.model.json.ModelOverride;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Buckets the overrides of a model by the value of its most common discriminating predicate.
+ * Each bucket lists, in their original order, the overrides that can match that key and the
+ * overrides that don't use the predicate, so scanning a bucket selects the same override as
+ * scanning the whole list.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public final class OverrideIndex {
+	private static final int MIN_INDEXED = 4;
+	private final CustomModelPredicate predicate;
+	private final Map<Object, int[]> buckets;
+	private final int[] fallback;
+
+	private OverrideIndex(CustomModelPredicate predicate, Map<Object, int[]> buckets, int[] fallback) {
+		this.predicate = predicate;
+		this.buckets = buckets;
+		this.fallback = fallback;
+	}
+
+	public int[] getCandidates(ItemStack stack, PredicateContext context) {
+		Object key = predicate.getDiscriminator().getKey(stack, context);
+		if (key == null) {
+			return fallback;
+		}
+		int[] bucket = buckets.get(key);
+		return bucket == null ? fallback : bucket;
+	}
+
+	/**
+	 * @return an index for the overrides, or {@code null} if no predicate discriminates enough of them
+	 */
+	public static OverrideIndex build(List<ModelOverride> overrides) {
+		int[] counts = new int[ChimeMain.getPredicateCount()];
+		int best = -1;
+		for (ModelOverride override : overrides) {
+			CustomPredicateSet set = ((ModelOverrideWrapper) override).getCustomPredicates();
+			for (int i = 0; set != null && i < set.size(); i++) {
+				BoundPredicate bound = set.get(i);
+				if (getKeys(bound) != null) {
+					int id = bound.getPredicate().getId();
+					if (++counts[id] >= MIN_INDEXED && (best == -1 || counts[id] > counts[best])) {
+						best = id;
+					}
+				}
+			}
+		}
+		if (best == -1) {
+			return null;
+		}
+		CustomModelPredicate predicate = ChimeMain.getPredicate(best);
+		Map<Object, IntArrayList> keyed = Maps.newHashMap();
+		IntArrayList unkeyed = new IntArrayList();
+		for (int i = 0; i < overrides.size(); i++) {
+			Object[] keys = null;
+			CustomPredicateSet set = ((ModelOverrideWrapper) overrides.get(i)).getCustomPredicates();
+			for (int j = 0; set != null && j < set.size(); j++) {
+				if (set.get(j).getPredicate() == predicate) {
+					keys = getKeys(set.get(j));
+					break;
+				}
+			}
+			if (keys == null) {
+				unkeyed.add(i);
+			} else {
+				for (Object key : keys) {
+					keyed.computeIfAbsent(key, k -> new IntArrayList()).add(i);
+				}
+			}
+		}
+		Map<Object, int[]> buckets = Maps.newHashMap();
+		for (Map.Entry<Object, IntArrayList> entry : keyed.entrySet()) {
+			IntArrayList list = entry.getValue();
+			list.addAll(unkeyed);
+			int[] bucket = list.toIntArray();
+			Arrays.sort(bucket);
+			buckets.put(entry.getKey(), bucket);
+		}
+		return new OverrideIndex(predicate, buckets, unkeyed.toIntArray());
+	}
+
+	private static Object[] getKeys(BoundPredicate bound) {
+		PredicateDiscriminator discriminator = bound.getPredicate().getDiscriminator();
+		if (discriminator == null) {
+			return null;
+		}
+		return discriminator.getKeys(bound.getValue());
+	}
+}
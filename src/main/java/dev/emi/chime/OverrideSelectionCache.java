@@ -0,0 +1,74 @@
+package dev.emi.chime;
+
+import java.util.Arrays;
+
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+
+/**
+ * Remembers which override of an override list was selected for a stack during the current frame,
+ * so the same stack rendered several times in a frame only evaluates its overrides once.
+ * Entries are direct mapped and dropped at every frame boundary. Only accessed from the render thread.
+ */
+public final class OverrideSelectionCache {
+	public static final int MISS = -2;
+	private static final int SIZE = 256;
+	private static final Object[] LISTS = new Object[SIZE];
+	private static final ItemStack[] STACKS = new ItemStack[SIZE];
+	private static final CompoundTag[] TAGS = new CompoundTag[SIZE];
+	private static final ClientWorld[] WORLDS = new ClientWorld[SIZE];
+	private static final LivingEntity[] ENTITIES = new LivingEntity[SIZE];
+	private static final int[] SELECTED = new int[SIZE];
+	private static int frame = -1;
+
+	/**
+	 * @return the index of the selected override, {@code -1} if none matched, or {@link #MISS}
+	 */
+	public static int get(Object list, ItemStack stack, ClientWorld world, LivingEntity entity) {
+		if (checkFrame()) {
+			return MISS;
+		}
+		int slot = slot(list, stack);
+		if (LISTS[slot] == list && STACKS[slot] == stack && TAGS[slot] == stack.getTag() && WORLDS[slot] == world
+				&& ENTITIES[slot] == entity) {
+			return SELECTED[slot];
+		}
+		return MISS;
+	}
+
+	public static void put(Object list, ItemStack stack, ClientWorld world, LivingEntity entity, int selected) {
+		checkFrame();
+		int slot = slot(list, stack);
+		LISTS[slot] = list;
+		STACKS[slot] = stack;
+		TAGS[slot] = stack.getTag();
+		WORLDS[slot] = world;
+		ENTITIES[slot] = entity;
+		SELECTED[slot] = selected;
+	}
+
+	private static boolean checkFrame() {
+		int current = ChimeClient.getFrames();
+		if (frame != current) {
+			frame = current;
+			clear();
+			return true;
+		}
+		return false;
+	}
+
+	private static int slot(Object list, ItemStack stack) {
+		int hash = System.identityHashCode(stack) * 31 + System.identityHashCode(list);
+		return (hash ^ (hash >>> 16)) & (SIZE - 1);
+	}
+
+	private static void clear() {
+		Arrays.fill(LISTS, null);
+		Arrays.fill(STACKS, null);
+		Arrays.fill(TAGS, null);
+		Arrays.fill(WORLDS, null);
+		Arrays.fill(ENTITIES, null);
+	}
+}
@@ -0,0 +1,235 @@
+package dev.emi.chime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+
+import dev.emi.chime.ChimeMain.CustomModelPredicate;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * An on-disk cache of compiled predicate values, keyed by a hash of the predicate and the value's
+ * JSON. The cache from the last load is read into memory and entries are decoded as they're asked for,
+ * at the end of a load every value used is written back. A format version and a fingerprint of the
+ * registered predicates invalidate the whole cache.
+ *
+ * <p>Two files are alternated so a write that's interrupted never loses the last complete cache.
+ */
+public final class PredicateCache {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	private static final int MAGIC = 0x4348494D;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	private static final String[] FILES = { "predicates-a.bin", "predicates-b.bin" };
+	private static Path directory;
+	private static ByteBuffer cached;
+	private static Long2IntOpenHashMap offsets;
+	private static int slot;
+	private static long generation;
+	private static Map<Long, byte[]> used = new ConcurrentHashMap<>();
+	private static volatile boolean loaded;
+	private static boolean changed;
+
+	private PredicateCache() {
+	}
+
+	public interface Codec<T> {
+		public void write(T value, DataOutput out) throws IOException;
+
+		public T read(DataInput in) throws IOException;
+	}
+
+	public static void setDirectory(Path directory) {
+		PredicateCache.directory = directory;
+	}
+
+	public static <T> T get(CustomModelPredicate<?> predicate, JsonElement element, Codec<T> codec, Function<JsonElement, T> parser) {
+		if (directory == null) {
+			return parser.apply(element);
+		}
+		if (!loaded) {
+			ensureLoaded();
+		}
+		long hash = hash(predicate.getKey(), element.toString());
+		byte[] bytes = used.get(hash);
+		if (bytes == null) {
+			bytes = getCached(hash);
+		}
+		if (bytes != null) {
+			try {
+				T value = codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+				used.put(hash, bytes);
+				return value;
+			} catch (IOException | RuntimeException e) {
+				LOGGER.debug("Discarding unreadable cached predicate", e);
+			}
+		}
+		T value = parser.apply(element);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			codec.write(value, new DataOutputStream(out));
+			used.put(hash, out.toByteArray());
+			changed = true;
+		} catch (IOException e) {
+			LOGGER.debug("Failed to encode predicate for caching", e);
+		}
+		return value;
+	}
+
+	/**
+	 * Writes every value used since the last save if any had to be parsed, called once models have loaded.
+	 */
+	public static synchronized void save() {
+		if (directory == null || !loaded) {
+			return;
+		}
+		if (changed || used.size() != offsets.size()) {
+			int target = 1 - slot;
+			Path path = directory.resolve(FILES[target]);
+			try {
+				Files.createDirectories(directory);
+				try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+					out.writeInt(MAGIC);
+					out.writeInt(FORMAT_VERSION);
+					out.writeLong(fingerprint());
+					out.writeLong(generation + 1);
+					out.writeInt(used.size());
+					for (Map.Entry<Long, byte[]> entry : used.entrySet()) {
+						out.writeLong(entry.getKey());
+						out.writeInt(entry.getValue().length);
+						out.write(entry.getValue());
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Failed to write Chime predicate cache", e);
+			}
+		}
+		// Read the newest file again on the next load
+		cached = null;
+		offsets = null;
+		used = new ConcurrentHashMap<>();
+		changed = false;
+		loaded = false;
+	}
+
+	private static synchronized void ensureLoaded() {
+		if (loaded) {
+			return;
+		}
+		offsets = new Long2IntOpenHashMap();
+		offsets.defaultReturnValue(-1);
+		generation = -1;
+		slot = 0;
+		long fingerprint = fingerprint();
+		long[] generations = new long[FILES.length];
+		for (int i = 0; i < FILES.length; i++) {
+			generations[i] = readGeneration(directory.resolve(FILES[i]), fingerprint);
+		}
+		// Newest first, falling back to the other file if the newest can't be read
+		for (int n = 0; n < FILES.length; n++) {
+			int i = 0;
+			for (int j = 1; j < FILES.length; j++) {
+				if (generations[j] > generations[i]) {
+					i = j;
+				}
+			}
+			if (generations[i] < 0) {
+				break;
+			}
+			Path path = directory.resolve(FILES[i]);
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+				buffer.position(HEADER_SIZE);
+				Long2IntOpenHashMap fileOffsets = new Long2IntOpenHashMap();
+				fileOffsets.defaultReturnValue(-1);
+				int count = buffer.getInt();
+				for (int j = 0; j < count; j++) {
+					long hash = buffer.getLong();
+					int length = buffer.getInt();
+					fileOffsets.put(hash, buffer.position() - 4);
+					buffer.position(buffer.position() + length);
+				}
+				cached = buffer;
+				offsets = fileOffsets;
+				generation = generations[i];
+				slot = i;
+				break;
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Ignoring unreadable Chime predicate cache " + path, e);
+				generations[i] = -1;
+			}
+		}
+		loaded = true;
+	}
+
+	private static long readGeneration(Path path, long fingerprint) {
+		if (!Files.exists(path)) {
+			return -1;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION
+					|| header.getLong() != fingerprint) {
+				return -1;
+			}
+			return header.getLong();
+		} catch (IOException e) {
+			LOGGER.warn("Ignoring unreadable Chime predicate cache " + path, e);
+			return -1;
+		}
+	}
+
+	private static byte[] getCached(long hash) {
+		int offset = offsets.get(hash);
+		if (offset < 0) {
+			return null;
+		}
+		// Absolute reads through a duplicate, so concurrent parses don't share a position
+		ByteBuffer buffer = cached.duplicate();
+		byte[] bytes = new byte[buffer.getInt(offset)];
+		buffer.position(offset + 4);
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static long hash(String key, String json) {
+		return Hashing.murmur3_128().newHasher()
+			.putString(key, StandardCharsets.UTF_8)
+			.putByte((byte) 0)
+			.putString(json, StandardCharsets.UTF_8)
+			.hash().asLong();
+	}
+
+	private static long fingerprint() {
+		Hasher hasher = Hashing.murmur3_128().newHasher();
+		for (int i = 0; i < ChimeMain.getPredicateCount(); i++) {
+			CustomModelPredicate<?> predicate = ChimeMain.getPredicate(i);
+			hasher.putString(predicate.getKey(), StandardCharsets.UTF_8);
+			hasher.putString(predicate.getClass().getName(), StandardCharsets.UTF_8);
+		}
+		return hasher.hash().asLong();
+	}
+}
@@ -0,0 +1,175 @@
+package dev.emi.chime;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.google.common.collect.Lists;
+
+import dev.emi.chime.ChimeMain.BooleanPredicateFunction;
+import dev.emi.chime.ChimeMain.ContextualCustomModelPredicateFunction;
+import dev.emi.chime.ChimeMain.StringInputFunction;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Generates a class per predicate set that calls each predicate's function directly with primitive
+ * values folded in as constants. Every call site in the generated code only ever sees one receiver,
+ * so the JIT can inline the predicate bodies instead of dispatching through shared megamorphic calls.
+ * Each class gets its own loader so it can be unloaded with its set.
+ */
+public final class PredicateCompiler {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	private static final AtomicInteger CLASSES = new AtomicInteger();
+	private static final String SUPER = Type.getInternalName(CompiledPredicates.class);
+	private static final String BOUND = Type.getInternalName(BoundPredicate.class);
+	private static final String MATCHES = Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.getType(ItemStack.class), Type.getType(PredicateContext.class));
+	private final String name = "dev/emi/chime/compiled/PredicateSet" + CLASSES.getAndIncrement();
+	private final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+
+		@Override
+		protected String getCommonSuperClass(String first, String second) {
+			return "java/lang/Object";
+		}
+	};
+	private final List<Object> constants = Lists.newArrayList();
+	private final Label fail = new Label();
+	private MethodVisitor method;
+
+	private PredicateCompiler() {
+	}
+
+	/**
+	 * @return the compiled form of the given predicates, or null if generation failed and they should be interpreted
+	 */
+	public static CompiledPredicates compile(BoundPredicate[] predicates) {
+		try {
+			return new PredicateCompiler().generate(predicates);
+		} catch (Throwable t) {
+			LOGGER.warn("Failed to compile custom predicates, falling back to the interpreter", t);
+			return null;
+		}
+	}
+
+	private CompiledPredicates generate(BoundPredicate[] predicates) throws ReflectiveOperationException {
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, name, null, SUPER, null);
+		method = writer.visitMethod(Opcodes.ACC_PUBLIC, "matches", MATCHES, null, null);
+		method.visitCode();
+		for (BoundPredicate predicate : predicates) {
+			predicate.emit(this);
+		}
+		method.visitInsn(Opcodes.ICONST_1);
+		method.visitInsn(Opcodes.IRETURN);
+		method.visitLabel(fail);
+		method.visitInsn(Opcodes.ICONST_0);
+		method.visitInsn(Opcodes.IRETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+		generateConstructor();
+		writer.visitEnd();
+		Class<?> clazz = new DefiningClassLoader(PredicateCompiler.class.getClassLoader()).define(name.replace('/', '.'), writer.toByteArray());
+		return (CompiledPredicates) clazz.getConstructor(Object[].class).newInstance((Object) constants.toArray());
+	}
+
+	private void generateConstructor() {
+		MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+		init.visitCode();
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER, "<init>", "()V", false);
+		for (int i = 0; i < constants.size(); i++) {
+			String type = getConstantType(i);
+			init.visitVarInsn(Opcodes.ALOAD, 0);
+			init.visitVarInsn(Opcodes.ALOAD, 1);
+			init.visitLdcInsn(i);
+			init.visitInsn(Opcodes.AALOAD);
+			init.visitTypeInsn(Opcodes.CHECKCAST, type);
+			init.visitFieldInsn(Opcodes.PUTFIELD, name, "c" + i, "L" + type + ";");
+		}
+		init.visitInsn(Opcodes.RETURN);
+		init.visitMaxs(0, 0);
+		init.visitEnd();
+	}
+
+	/**
+	 * Functions are typed as the interface they were bound through, other constants as their own public class
+	 */
+	private String getConstantType(int index) {
+		Object constant = constants.get(index);
+		Class<?>[] types = { BooleanPredicateFunction.class, ContextualCustomModelPredicateFunction.class, StringInputFunction.class,
+			StringPattern.class, BoundPredicate.class };
+		for (Class<?> type : types) {
+			if (type.isInstance(constant)) {
+				return Type.getInternalName(type);
+			}
+		}
+		return "java/lang/Object";
+	}
+
+	private void loadConstant(Object constant) {
+		int index = constants.size();
+		constants.add(constant);
+		String type = getConstantType(index);
+		writer.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "c" + index, "L" + type + ";", null, null).visitEnd();
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitFieldInsn(Opcodes.GETFIELD, name, "c" + index, "L" + type + ";");
+	}
+
+	private void loadArguments() {
+		method.visitVarInsn(Opcodes.ALOAD, 1);
+		method.visitVarInsn(Opcodes.ALOAD, 2);
+	}
+
+	private void invokeFunction(Class<?> function, Type value) {
+		String descriptor = Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.getType(ItemStack.class), Type.getType(PredicateContext.class), value);
+		method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(function), "matches", descriptor, true);
+		method.visitJumpInsn(Opcodes.IFEQ, fail);
+	}
+
+	void emitBoolean(BooleanPredicateFunction function, boolean value) {
+		loadConstant(function);
+		loadArguments();
+		method.visitInsn(value ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+		invokeFunction(BooleanPredicateFunction.class, Type.BOOLEAN_TYPE);
+	}
+
+	void emitObject(ContextualCustomModelPredicateFunction<?> function, Object value) {
+		loadConstant(function);
+		loadArguments();
+		loadConstant(value);
+		invokeFunction(ContextualCustomModelPredicateFunction.class, Type.getType(Object.class));
+	}
+
+	void emitPattern(StringInputFunction input, StringPattern pattern) {
+		loadConstant(pattern);
+		loadConstant(input);
+		loadArguments();
+		method.visitMethodInsn(Opcodes.INVOKEINTERFACE, Type.getInternalName(StringInputFunction.class), "get",
+			Type.getMethodDescriptor(Type.getType(String.class), Type.getType(ItemStack.class), Type.getType(PredicateContext.class)), true);
+		method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, Type.getInternalName(StringPattern.class), "matches", "(Ljava/lang/String;)Z", false);
+		method.visitJumpInsn(Opcodes.IFEQ, fail);
+	}
+
+	void emitBound(BoundPredicate predicate) {
+		loadConstant(predicate);
+		loadArguments();
+		method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BOUND, "matches", MATCHES, false);
+		method.visitJumpInsn(Opcodes.IFEQ, fail);
+	}
+
+	private static final class DefiningClassLoader extends ClassLoader {
+
+		private DefiningClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		private Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package dev.emi.chime;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tag.TagManager;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.hit.EntityHitResult;
+import net.minecraft.util.hit.HitResult;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * State shared by every custom predicate evaluated during a frame. Crosshair and world lookups
+ * are resolved once per frame and reused across every override of every rendered item, and
+ * changes to them are tracked with version counters for {@link PredicateInput}.
+ * The shared instance is only used on the render thread.
+ */
+public final class PredicateContext {
+	private static final PredicateContext INSTANCE = new PredicateContext();
+	private int frame = -1;
+	private MinecraftClient client;
+	private ClientWorld clientWorld;
+	private TagManager tagManager;
+	private HitResult.Type hitType;
+	private BlockHitResult blockHit;
+	private BlockState targetBlock;
+	private Entity targetEntity;
+	private boolean raining, thundering;
+	private long worldVersion, weatherVersion, crosshairVersion;
+	private BlockPos lastTargetPos;
+	private ClientWorld world;
+	private LivingEntity entity;
+	private boolean player;
+
+	private PredicateContext() {
+	}
+
+	/**
+	 * @return the shared context on the render thread, or a fresh one on any other thread
+	 */
+	public static PredicateContext prepare(ClientWorld world, LivingEntity entity) {
+		PredicateContext context;
+		if (ChimeClient.isRenderThread()) {
+			context = INSTANCE;
+			int frame = ChimeClient.getFrames();
+			if (context.frame != frame) {
+				context.frame = frame;
+				context.refresh();
+			}
+		} else {
+			context = new PredicateContext();
+			context.refresh();
+		}
+		context.world = world;
+		context.entity = entity;
+		context.player = entity != null && context.client != null && entity == context.client.player;
+		return context;
+	}
+
+	/**
+	 * @return the world an item is being rendered in, falling back to the entity or the stack's holder
+	 */
+	public static ClientWorld resolveWorld(ItemStack stack, ClientWorld world, LivingEntity entity) {
+		if (world == null && entity != null) {
+			world = (ClientWorld) entity.getEntityWorld();
+		}
+		if (world == null && stack.getHolder() != null) {
+			world = (ClientWorld) stack.getHolder().getEntityWorld();
+		}
+		return world;
+	}
+
+	private void refresh() {
+		client = MinecraftClient.getInstance();
+		ClientWorld currentWorld = client == null ? null : client.world;
+		// Tags synced from the server replace the tag manager, which tag predicates depend on
+		TagManager currentTags = currentWorld == null ? null : currentWorld.getTagManager();
+		if (clientWorld != currentWorld || tagManager != currentTags) {
+			clientWorld = currentWorld;
+			tagManager = currentTags;
+			worldVersion++;
+		}
+		HitResult hit = client == null ? null : client.crosshairTarget;
+		HitResult.Type lastHitType = hitType;
+		BlockState lastTargetBlock = targetBlock;
+		Entity lastTargetEntity = targetEntity;
+		hitType = hit == null ? HitResult.Type.MISS : hit.getType();
+		blockHit = hitType == HitResult.Type.BLOCK ? (BlockHitResult) hit : null;
+		targetBlock = blockHit != null && clientWorld != null ? clientWorld.getBlockState(blockHit.getBlockPos()) : null;
+		targetEntity = hitType == HitResult.Type.ENTITY ? ((EntityHitResult) hit).getEntity() : null;
+		BlockPos targetPos = blockHit == null ? null : blockHit.getBlockPos();
+		if (hitType != lastHitType || targetBlock != lastTargetBlock || targetEntity != lastTargetEntity
+				|| (targetPos == null ? lastTargetPos != null : !targetPos.equals(lastTargetPos))) {
+			crosshairVersion++;
+		}
+		lastTargetPos = targetPos;
+		boolean wasRaining = raining, wasThundering = thundering;
+		raining = clientWorld != null && clientWorld.isRaining();
+		thundering = clientWorld != null && clientWorld.isThundering();
+		if (raining != wasRaining || thundering != wasThundering) {
+			weatherVersion++;
+		}
+	}
+
+	/**
+	 * @return a stamp that changes whenever any of the given tracked {@link PredicateInput}s change
+	 * for the client world, valid only when {@link #isClientWorld()}
+	 */
+	public long getVersion(int inputs) {
+		long version = 0;
+		if ((inputs & PredicateInput.WORLD) != 0) {
+			version += worldVersion;
+		}
+		if ((inputs & PredicateInput.WEATHER) != 0) {
+			version += weatherVersion;
+		}
+		if ((inputs & PredicateInput.CROSSHAIR) != 0) {
+			version += crosshairVersion;
+		}
+		if ((inputs & PredicateInput.STACK_TAG) != 0) {
+			version += NbtMatchCache.getVersion();
+		}
+		return version;
+	}
+
+	public boolean isClientWorld() {
+		return world == clientWorld;
+	}
+
+	public ClientWorld getWorld() {
+		return world;
+	}
+
+	public LivingEntity getEntity() {
+		return entity;
+	}
+
+	public ClientWorld getClientWorld() {
+		return clientWorld;
+	}
+
+	public boolean isPlayer() {
+		return player;
+	}
+
+	public String getTargetType() {
+		if (!player) {
+			return "none";
+		} else if (hitType == HitResult.Type.BLOCK) {
+			return "block";
+		} else if (hitType == HitResult.Type.ENTITY) {
+			return "entity";
+		}
+		return "miss";
+	}
+
+	public BlockState getTargetBlock() {
+		if (!player || targetBlock == null) {
+			return Blocks.AIR.getDefaultState();
+		}
+		return targetBlock;
+	}
+
+	public Entity getTargetEntity() {
+		return player ? targetEntity : null;
+	}
+
+	public boolean isRaining() {
+		if (world == clientWorld) {
+			return raining;
+		}
+		return world != null && world.isRaining();
+	}
+
+	public boolean isThundering() {
+		if (world == clientWorld) {
+			return thundering;
+		}
+		return world != null && world.isThundering();
+	}
+}
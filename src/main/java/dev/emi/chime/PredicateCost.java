@@ -0,0 +1,20 @@
+package dev.emi.chime;
+
+/**
+ * Rough evaluation cost classes for custom predicates. Predicates within an override are evaluated
+ * cheapest first so cheap rejections skip expensive checks.
+ */
+public final class PredicateCost {
+	public static final int TRIVIAL = 0;
+	public static final int CHEAP = 1;
+	public static final int MODERATE = 2;
+	public static final int EXPENSIVE = 3;
+	private static final int[] WEIGHTS = { 1, 2, 8, 32 };
+
+	private PredicateCost() {
+	}
+
+	public static int getWeight(int cost) {
+		return WEIGHTS[cost];
+	}
+}
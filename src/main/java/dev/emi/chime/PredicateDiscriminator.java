@@ -0,0 +1,21 @@
+package dev.emi.chime;
+
+import net.minecraft.item.ItemStack;
+
+/**
+ * Lets an override list bucket its overrides by the value of a predicate, so that overrides that
+ * can't match the current key are skipped without being evaluated.
+ */
+public interface PredicateDiscriminator<T> {
+
+	/**
+	 * @return every key for which the predicate can match with the given value, or {@code null} if the
+	 * value can't be bucketed
+	 */
+	public Object[] getKeys(T value);
+
+	/**
+	 * @return the key for the current evaluation, or {@code null} if the predicate can't match any bucketed value
+	 */
+	public Object getKey(ItemStack stack, PredicateContext context);
+}
@@ -0,0 +1,36 @@
+package dev.emi.chime;
+
+/**
+ * Flags describing what a custom predicate's result depends on. Predicates that only depend on
+ * inputs with cheap change tracking have their last result reused until one of them changes.
+ */
+public final class PredicateInput {
+	public static final int STACK = 1;
+	/** Tracked by the tag's identity and {@link NbtMatchCache#getVersion} */
+	public static final int STACK_TAG = 2;
+	public static final int ENTITY = 4;
+	/** Mutable entity state like position, held items or serialized data, not tracked */
+	public static final int ENTITY_STATE = 8;
+	public static final int WORLD = 16;
+	public static final int WEATHER = 32;
+	public static final int CROSSHAIR = 64;
+	/** The world's dimension type, fixed for as long as the client is in the world */
+	public static final int DIMENSION = 128;
+	public static final int UNTRACKED = ENTITY_STATE;
+	/** Assumed for predicates that don't declare their inputs */
+	public static final int ALL = STACK | STACK_TAG | ENTITY | ENTITY_STATE | WORLD | WEATHER | CROSSHAIR;
+
+	private PredicateInput() {
+	}
+
+	public static boolean isTracked(int inputs) {
+		return (inputs & UNTRACKED) == 0;
+	}
+
+	/**
+	 * @return whether a predicate with these inputs always has the same result in the client world
+	 */
+	public static boolean isConstantPerWorld(int inputs) {
+		return (inputs & DIMENSION) != 0 && (inputs & ~(WORLD | DIMENSION)) == 0;
+	}
+}
@@ -0,0 +1,142 @@
+package dev.emi.chime;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.Identifier;
+
+/**
+ * Optional timing of custom predicate and model override evaluation. When disabled the only cost on
+ * the render path is a check of {@link #enabled}. Only accessed from the render thread.
+ */
+public class PredicateProfiler {
+	private static final int BUCKETS = 32;
+	private static final int OVERLAY_LINES = 5;
+	public static boolean enabled;
+	private static Stats[] predicates = new Stats[0];
+	private static Map<Identifier, Stats> models = Maps.newHashMap();
+
+	public static void setEnabled(boolean enabled) {
+		if (enabled && !PredicateProfiler.enabled) {
+			reset();
+		}
+		PredicateProfiler.enabled = enabled;
+	}
+
+	public static void reset() {
+		predicates = new Stats[ChimeMain.getPredicateCount()];
+		for (int i = 0; i < predicates.length; i++) {
+			predicates[i] = new Stats(ChimeMain.getPredicate(i).getKey());
+		}
+		models = Maps.newHashMap();
+	}
+
+	public static boolean matches(BoundPredicate[] bound, ItemStack stack, PredicateContext context) {
+		for (int i = 0; i < bound.length; i++) {
+			long start = System.nanoTime();
+			boolean result = bound[i].matches(stack, context);
+			record(predicates[bound[i].getPredicate().getId()], System.nanoTime() - start, result);
+			if (!result) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static void recordOverride(Identifier model, long nanos, boolean result) {
+		Stats stats = models.get(model);
+		if (stats == null) {
+			stats = new Stats(model.toString());
+			models.put(model, stats);
+		}
+		record(stats, nanos, result);
+	}
+
+	private static void record(Stats stats, long nanos, boolean result) {
+		stats.invocations++;
+		stats.nanos += nanos;
+		if (result) {
+			stats.passed++;
+		}
+		stats.histogram[Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(1, nanos)))]++;
+	}
+
+	public static List<String> getOverlay() {
+		List<String> lines = Lists.newArrayList();
+		lines.add("");
+		lines.add("[Chime] Predicate profiler");
+		for (Stats stats : sorted(Arrays.asList(predicates), OVERLAY_LINES)) {
+			lines.add(stats.toString());
+		}
+		for (Stats stats : sorted(models.values(), OVERLAY_LINES)) {
+			lines.add(stats.toString());
+		}
+		return lines;
+	}
+
+	public static Path dump(Path directory) throws IOException {
+		List<String> lines = Lists.newArrayList();
+		lines.add("Predicates (key, invocations, total ms, mean ns, p50 ns, p99 ns, passed)");
+		for (Stats stats : sorted(Arrays.asList(predicates), Integer.MAX_VALUE)) {
+			lines.add(stats.toString());
+		}
+		lines.add("");
+		lines.add("Models (override model, evaluations, total ms, mean ns, p50 ns, p99 ns, matched)");
+		for (Stats stats : sorted(models.values(), Integer.MAX_VALUE)) {
+			lines.add(stats.toString());
+		}
+		Path path = directory.resolve("chime-profile-" + new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".txt");
+		Files.write(path, lines);
+		return path;
+	}
+
+	private static List<Stats> sorted(Iterable<Stats> stats, int limit) {
+		List<Stats> list = Lists.newArrayList();
+		for (Stats s : stats) {
+			if (s.invocations > 0) {
+				list.add(s);
+			}
+		}
+		list.sort(Comparator.comparingLong((Stats s) -> s.nanos).reversed());
+		return list.size() > limit ? list.subList(0, limit) : list;
+	}
+
+	private static class Stats {
+		private final String name;
+		private final long[] histogram = new long[BUCKETS];
+		private long invocations, passed, nanos;
+
+		private Stats(String name) {
+			this.name = name;
+		}
+
+		private long percentile(double fraction) {
+			long target = (long) Math.ceil(invocations * fraction);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += histogram[i];
+				if (seen >= target) {
+					return 1L << (i + 1);
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d, %.2fms, %dns, <%dns, <%dns, %.1f%%", name, invocations, nanos / 1_000_000.0,
+				nanos / invocations, percentile(0.5), percentile(0.99), passed * 100.0 / invocations);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package dev.emi.chime;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.collect.Maps;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import dev.emi.chime.ChimeMain.CustomModelPredicate;
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.Identifier;
+
+/**
+ * How often predicates that don't need frame accurate results are reevaluated, declared per predicate key by
+ * resource packs in {@code assets/<namespace>/chime/refresh_intervals.json} or by the client config as
+ * {@code refresh.<key>}. Values are a number of ticks or {@code on_change}, and the client config takes precedence.
+ */
+public final class PredicateRefresh {
+	private static final Logger LOGGER = LogManager.getLogger("Chime");
+	private static final String PATH = "chime/refresh_intervals.json";
+	public static final int EVERY_FRAME = 0;
+	/** Only valid for predicates with tracked inputs */
+	public static final int ON_CHANGE = -1;
+	private static Map<String, Integer> fromPacks = Collections.emptyMap();
+
+	private PredicateRefresh() {
+	}
+
+	/**
+	 * @return the interval described by a config or resource pack value
+	 * @throws IllegalArgumentException if the value isn't {@code on_change} or a non negative number of ticks
+	 */
+	public static int parse(String value) {
+		if (value.equals("on_change")) {
+			return ON_CHANGE;
+		}
+		int ticks = Integer.parseInt(value.trim());
+		if (ticks < 0) {
+			throw new IllegalArgumentException("Negative refresh interval " + ticks);
+		}
+		return ticks;
+	}
+
+	/**
+	 * @return the refresh period a result for the given key belongs to, which changes every interval ticks
+	 * with a phase that depends on the key so keys created together don't all refresh on the same tick
+	 */
+	public static int getPeriod(Object key, int interval, int ticks) {
+		int phase = (System.identityHashCode(key) & Integer.MAX_VALUE) % interval;
+		return (ticks + phase) / interval;
+	}
+
+	/**
+	 * Reads the intervals declared by every resource pack, later packs overriding earlier ones, called
+	 * before models are loaded.
+	 */
+	public static void load(ResourceManager manager) {
+		Map<String, Integer> intervals = Maps.newHashMap();
+		for (Identifier id : manager.findResources("chime", path -> path.endsWith("refresh_intervals.json"))) {
+			if (!id.getPath().equals(PATH)) {
+				continue;
+			}
+			try {
+				for (Resource resource : manager.getAllResources(id)) {
+					try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+						JsonObject object = new JsonParser().parse(reader).getAsJsonObject();
+						for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+							intervals.put(entry.getKey(), parse(entry.getValue().getAsString()));
+						}
+					} catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+						LOGGER.warn("Failed to parse {} in {}", id, resource.getResourcePackName(), e);
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warn("Failed to read {}", id, e);
+			}
+		}
+		fromPacks = intervals;
+		apply();
+	}
+
+	/**
+	 * Sets every registered predicate's interval from the client config and resource packs, predicates
+	 * whose interval changes are bound again when next parsed.
+	 */
+	public static void apply() {
+		for (Map.Entry<String, CustomModelPredicate> entry : ChimeMain.CUSTOM_MODEL_PREDICATES.entrySet()) {
+			Integer interval = ChimeConfig.refreshIntervals.get(entry.getKey());
+			if (interval == null) {
+				interval = fromPacks.get(entry.getKey());
+			}
+			if (interval != null && interval == ON_CHANGE && !PredicateInput.isTracked(entry.getValue().getInputs())) {
+				LOGGER.warn("Ignoring on_change refresh interval for {}, which has no change tracking", entry.getKey());
+				interval = null;
+			}
+			entry.getValue().setRefreshInterval(interval == null ? EVERY_FRAME : interval);
+		}
+	}
+}
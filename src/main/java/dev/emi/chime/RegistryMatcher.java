@@ -0,0 +1,83 @@
+package dev.emi.chime;
+
+import java.util.BitSet;
+import java.util.function.Function;
+
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.tag.Tag;
+import net.minecraft.tag.TagGroup;
+import net.minecraft.tag.TagManager;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.registry.Registry;
+
+/**
+ * Matches registry entries against an id or a {@code #tag}. Ids are resolved to their entry when
+ * parsed, and tags to a set of raw ids whenever the world's tag manager changes, so matching is
+ * a single comparison or bit test.
+ */
+public final class RegistryMatcher<T> {
+	private final Registry<T> registry;
+	private final Function<TagManager, TagGroup<T>> tags;
+	private final Identifier id;
+	private final boolean tag;
+	private final T entry;
+	private TagManager tagManager;
+	private BitSet members;
+
+	private RegistryMatcher(Registry<T> registry, Function<TagManager, TagGroup<T>> tags, Identifier id, boolean tag) {
+		this.registry = registry;
+		this.tags = tags;
+		this.id = id;
+		this.tag = tag;
+		this.entry = tag ? null : registry.getOrEmpty(id).orElse(null);
+	}
+
+	public static <T> RegistryMatcher<T> parse(String value, Registry<T> registry, Function<TagManager, TagGroup<T>> tags) {
+		if (value.startsWith("#")) {
+			return new RegistryMatcher<>(registry, tags, new Identifier(value.substring(1)), true);
+		}
+		return new RegistryMatcher<>(registry, tags, new Identifier(value), false);
+	}
+
+	public Identifier getId() {
+		return id;
+	}
+
+	public boolean isTag() {
+		return tag;
+	}
+
+	/**
+	 * @return the registry entry for a plain id, or null for tags and unknown ids
+	 */
+	public T getEntry() {
+		return entry;
+	}
+
+	public boolean matches(T value, ClientWorld world) {
+		if (!tag) {
+			return entry != null && value == entry;
+		}
+		if (world == null) {
+			return false;
+		}
+		TagManager manager = world.getTagManager();
+		if (manager != tagManager) {
+			members = resolve(manager);
+			tagManager = manager;
+		}
+		int rawId = registry.getRawId(value);
+		return rawId >= 0 && members.get(rawId);
+	}
+
+	private BitSet resolve(TagManager manager) {
+		BitSet bits = new BitSet();
+		Tag<T> group = tags.apply(manager).getTag(id);
+		if (group != null) {
+			for (T value : group.values()) {
+				bits.set(registry.getRawId(value));
+			}
+		}
+		return bits;
+	}
+}
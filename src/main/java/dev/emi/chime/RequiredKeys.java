@@ -0,0 +1,91 @@
+package dev.emi.chime;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+
+/**
+ * The compound key paths an NBT filter can't match without, checked for presence before any values are
+ * compared. Equal sets are interned so filters over the same keys share one check, whose last result is
+ * reused on the render thread for the same tag within a frame.
+ */
+public final class RequiredKeys {
+	private static final Interner<RequiredKeys> INTERNER = Interners.newWeakInterner();
+	private final String[][] paths;
+	private final int hash;
+	private CompoundTag lastTag;
+	private int lastFrame = -1;
+	private boolean lastResult;
+
+	private RequiredKeys(String[][] paths) {
+		this.paths = paths;
+		this.hash = Arrays.deepHashCode(paths);
+	}
+
+	static RequiredKeys of(List<String[]> paths) {
+		if (paths.isEmpty()) {
+			return null;
+		}
+		String[][] array = paths.toArray(new String[paths.size()][]);
+		// Shallow paths are cheapest to check and most likely to be missing, ties are ordered so equal
+		// sets of paths compare equal however their filters ordered the keys
+		Arrays.sort(array, Comparator.<String[]>comparingInt(path -> path.length).thenComparing(RequiredKeys::comparePaths));
+		return INTERNER.intern(new RequiredKeys(array));
+	}
+
+	private static int comparePaths(String[] a, String[] b) {
+		for (int i = 0; i < a.length; i++) {
+			int compared = a[i].compareTo(b[i]);
+			if (compared != 0) {
+				return compared;
+			}
+		}
+		return 0;
+	}
+
+	public boolean test(CompoundTag tag) {
+		if (!ChimeClient.isRenderThread()) {
+			return check(tag);
+		}
+		int frame = ChimeClient.getFrames();
+		if (tag != lastTag || frame != lastFrame) {
+			lastResult = check(tag);
+			lastTag = tag;
+			lastFrame = frame;
+		}
+		return lastResult;
+	}
+
+	private boolean check(CompoundTag tag) {
+		for (String[] path : paths) {
+			CompoundTag compound = tag;
+			for (int i = 0; i < path.length - 1; i++) {
+				Tag child = compound.get(path[i]);
+				if (!(child instanceof CompoundTag)) {
+					return false;
+				}
+				compound = (CompoundTag) child;
+			}
+			if (!compound.contains(path[path.length - 1])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof RequiredKeys && Arrays.deepEquals(paths, ((RequiredKeys) obj).paths);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -0,0 +1,152 @@
+package dev.emi.chime;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A regular expression classified at parse time, so plain literals, prefixes, suffixes, substrings
+ * and alternations of literals are matched with string operations instead of a {@link java.util.regex.Matcher}.
+ */
+public final class StringPattern {
+	private static final int EXACT = 0, PREFIX = 1, SUFFIX = 2, CONTAINS = 3, LITERAL_SET = 4, REGEX = 5;
+	private final String regex;
+	private final int kind;
+	private final String literal;
+	private final Set<String> literals;
+	// Only needed up front for full regexes, the others compile it when asked for
+	private volatile Pattern pattern;
+
+	private StringPattern(Pattern pattern, int kind, String literal, Set<String> literals) {
+		this.regex = pattern.pattern();
+		this.pattern = pattern;
+		this.kind = kind;
+		this.literal = literal;
+		this.literals = literals;
+	}
+
+	private StringPattern(String regex, int kind, String literal, Set<String> literals) {
+		this.regex = regex;
+		this.pattern = kind == REGEX ? Pattern.compile(regex) : null;
+		this.kind = kind;
+		this.literal = literal;
+		this.literals = literals;
+	}
+
+	public static StringPattern compile(String regex) {
+		Pattern pattern = Pattern.compile(regex);
+		if (isLiteral(regex)) {
+			return new StringPattern(pattern, EXACT, regex, null);
+		}
+		boolean leading = regex.startsWith(".*");
+		boolean trailing = regex.endsWith(".*") && !regex.endsWith("\\.*");
+		if (leading && trailing && regex.length() >= 4 && isLiteral(regex.substring(2, regex.length() - 2))) {
+			return new StringPattern(pattern, CONTAINS, regex.substring(2, regex.length() - 2), null);
+		} else if (leading && isLiteral(regex.substring(2))) {
+			return new StringPattern(pattern, SUFFIX, regex.substring(2), null);
+		} else if (trailing && isLiteral(regex.substring(0, regex.length() - 2))) {
+			return new StringPattern(pattern, PREFIX, regex.substring(0, regex.length() - 2), null);
+		}
+		String alternation = regex;
+		if (alternation.startsWith("(?:") && alternation.endsWith(")")) {
+			alternation = alternation.substring(3, alternation.length() - 1);
+		} else if (alternation.startsWith("(") && alternation.endsWith(")")) {
+			alternation = alternation.substring(1, alternation.length() - 1);
+		}
+		String[] parts = alternation.split("\\|", -1);
+		if (parts.length > 1) {
+			for (String part : parts) {
+				if (!isLiteral(part)) {
+					return new StringPattern(pattern, REGEX, null, null);
+				}
+			}
+			return new StringPattern(pattern, LITERAL_SET, null, ImmutableSet.copyOf(parts));
+		}
+		return new StringPattern(pattern, REGEX, null, null);
+	}
+
+	public Pattern getPattern() {
+		Pattern pattern = this.pattern;
+		if (pattern == null) {
+			pattern = Pattern.compile(regex);
+			this.pattern = pattern;
+		}
+		return pattern;
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(regex);
+		out.writeByte(kind);
+		if (kind == LITERAL_SET) {
+			out.writeInt(literals.size());
+			for (String s : literals) {
+				out.writeUTF(s);
+			}
+		} else if (kind != REGEX) {
+			out.writeUTF(literal);
+		}
+	}
+
+	public static StringPattern read(DataInput in) throws IOException {
+		String regex = in.readUTF();
+		int kind = in.readByte();
+		if (kind == LITERAL_SET) {
+			String[] literals = new String[in.readInt()];
+			for (int i = 0; i < literals.length; i++) {
+				literals[i] = in.readUTF();
+			}
+			return new StringPattern(regex, kind, null, ImmutableSet.copyOf(literals));
+		} else if (kind != REGEX) {
+			return new StringPattern(regex, kind, in.readUTF(), null);
+		}
+		return new StringPattern(regex, kind, null, null);
+	}
+
+	public boolean matches(String s) {
+		switch (kind) {
+			case EXACT:
+				return literal.equals(s);
+			case PREFIX:
+				return s.startsWith(literal) && !hasLineTerminator(s, literal.length(), s.length());
+			case SUFFIX:
+				return s.endsWith(literal) && !hasLineTerminator(s, 0, s.length() - literal.length());
+			case CONTAINS:
+				// Both wildcards must avoid line terminators, which only the first occurrence can guarantee
+				// when the string contains none at all
+				if (hasLineTerminator(s, 0, s.length())) {
+					return getPattern().matcher(s).matches();
+				}
+				return s.contains(literal);
+			case LITERAL_SET:
+				return literals.contains(s);
+			default:
+				return pattern.matcher(s).matches();
+		}
+	}
+
+	/**
+	 * {@code .} doesn't match line terminators without {@link Pattern#DOTALL}
+	 */
+	private static boolean hasLineTerminator(String s, int start, int end) {
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static boolean isLiteral(String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			if ("\\^$.|?*+()[]{}".indexOf(pattern.charAt(i)) != -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
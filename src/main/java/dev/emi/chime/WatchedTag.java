@@ -0,0 +1,15 @@
+package dev.emi.chime;
+
+/**
+ * Implemented on compound and list tags, which report mutations to {@link NbtMatchCache} once watched.
+ */
+public interface WatchedTag {
+
+	public long getWatchVersion();
+
+	public void setWatchVersion(long version);
+
+	public Object getMatchResults();
+
+	public void setMatchResults(Object results);
+}
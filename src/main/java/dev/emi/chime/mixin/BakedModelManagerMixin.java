@@ -0,0 +1,22 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import dev.emi.chime.PredicateRefresh;
+import net.minecraft.client.render.model.BakedModelManager;
+import net.minecraft.client.render.model.ModelLoader;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.util.profiler.Profiler;
+
+@Mixin(BakedModelManager.class)
+public class BakedModelManagerMixin {
+
+	@Inject(at = @At("HEAD"), method = "prepare(Lnet/minecraft/resource/ResourceManager;Lnet/minecraft/util/profiler/Profiler;)Lnet/minecraft/client/render/model/ModelLoader;")
+	private void prepare(ResourceManager manager, Profiler profiler, CallbackInfoReturnable<ModelLoader> info) {
+		// Refresh intervals decide how predicates are bound, so they're read before models are parsed
+		PredicateRefresh.load(manager);
+	}
+}
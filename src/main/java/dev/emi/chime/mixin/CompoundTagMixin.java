@@ -0,0 +1,56 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import dev.emi.chime.NbtMatchCache;
+import dev.emi.chime.WatchedTag;
+import net.minecraft.nbt.CompoundTag;
+
+@Mixin(CompoundTag.class)
+public class CompoundTagMixin implements WatchedTag {
+	@Unique
+	private long watchVersion;
+	@Unique
+	private Object matchResults;
+
+	// The array setters are overloaded for arrays and lists, select every overload
+	@Inject(at = @At("HEAD"), method = { "putByte", "putShort", "putInt", "putLong", "putUuid", "putFloat", "putDouble", "putString",
+		"putByteArray*", "putIntArray*", "putLongArray*", "putBoolean", "remove" })
+	private void mutate(CallbackInfo info) {
+		if (watchVersion != 0) {
+			NbtMatchCache.onMutation();
+		}
+	}
+
+	@Inject(at = @At("HEAD"), method = { "put", "copyFrom" })
+	private void mutateReturning(CallbackInfoReturnable<?> info) {
+		if (watchVersion != 0) {
+			NbtMatchCache.onMutation();
+		}
+	}
+
+	@Override
+	public long getWatchVersion() {
+		return watchVersion;
+	}
+
+	@Override
+	public void setWatchVersion(long version) {
+		watchVersion = version;
+	}
+
+	@Override
+	public Object getMatchResults() {
+		return matchResults;
+	}
+
+	@Override
+	public void setMatchResults(Object results) {
+		matchResults = results;
+	}
+}
@@ -0,0 +1,22 @@
+package dev.emi.chime.mixin;
+
+import java.util.List;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import dev.emi.chime.PredicateProfiler;
+import net.minecraft.client.gui.hud.DebugHud;
+
+@Mixin(DebugHud.class)
+public class DebugHudMixin {
+
+	@Inject(at = @At("RETURN"), method = "getLeftText")
+	private void getLeftText(CallbackInfoReturnable<List<String>> info) {
+		if (PredicateProfiler.enabled) {
+			info.getReturnValue().addAll(PredicateProfiler.getOverlay());
+		}
+	}
+}
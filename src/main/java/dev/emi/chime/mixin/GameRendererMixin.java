@@ -0,0 +1,18 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import dev.emi.chime.ChimeClient;
+import net.minecraft.client.render.GameRenderer;
+
+@Mixin(GameRenderer.class)
+public class GameRendererMixin {
+
+	@Inject(at = @At("HEAD"), method = "render(FJZ)V")
+	private void render(float tickDelta, long startTime, boolean tick, CallbackInfo info) {
+		ChimeClient.onFrame();
+	}
+}
@@ -0,0 +1,38 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import dev.emi.chime.OverrideBatch;
+import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.screen.ingame.HandledScreen;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.item.ItemStack;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.text.Text;
+
+@Mixin(HandledScreen.class)
+public abstract class HandledScreenMixin extends Screen {
+	@Shadow @Final
+	protected ScreenHandler handler;
+
+	protected HandledScreenMixin(Text title) {
+		super(title);
+	}
+
+	@Inject(at = @At("HEAD"), method = "render")
+	private void render(MatrixStack matrices, int mouseX, int mouseY, float delta, CallbackInfo info) {
+		if (client.player == null) {
+			return;
+		}
+		ItemStack[] stacks = new ItemStack[handler.slots.size()];
+		for (int i = 0; i < stacks.length; i++) {
+			stacks[i] = handler.slots.get(i).getStack();
+		}
+		OverrideBatch.prime(stacks, null, client.player);
+	}
+}
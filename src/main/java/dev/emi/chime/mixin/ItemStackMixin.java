@@ -0,0 +1,51 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+
+import dev.emi.chime.ChimeClient;
+import dev.emi.chime.ItemStackWrapper;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.text.Text;
+
+@Mixin(ItemStack.class)
+public abstract class ItemStackMixin implements ItemStackWrapper {
+	@Shadow
+	private CompoundTag tag;
+	@Unique
+	private String nameString;
+	@Unique
+	private CompoundTag nameTag;
+	@Unique
+	private Tag nameSource;
+	@Unique
+	private int nameFrame = -1;
+
+	@Shadow
+	public abstract Text getName();
+
+	@Shadow
+	public abstract CompoundTag getSubTag(String key);
+
+	@Override
+	public String getNameString() {
+		if (!ChimeClient.isRenderThread()) {
+			return getName().asString();
+		}
+		// Renaming replaces the Name tag, so its identity catches custom names changed in place.
+		// Translated names can change with the language, which the frame bound covers
+		CompoundTag display = getSubTag("display");
+		Tag source = display == null ? null : display.get("Name");
+		int frame = ChimeClient.getFrames();
+		if (nameString == null || nameTag != tag || nameSource != source || nameFrame != frame) {
+			nameString = getName().asString();
+			nameTag = tag;
+			nameSource = source;
+			nameFrame = frame;
+		}
+		return nameString;
+	}
+}
@@ -0,0 +1,52 @@
+package dev.emi.chime.mixin;
+
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import dev.emi.chime.NbtMatchCache;
+import dev.emi.chime.WatchedTag;
+import net.minecraft.nbt.ListTag;
+
+@Mixin(ListTag.class)
+public class ListTagMixin implements WatchedTag {
+	@Unique
+	private long watchVersion;
+
+	// List methods also have generic bridge overloads, select the ones taking tags directly
+	@Inject(at = @At("HEAD"), method = { "add(ILnet/minecraft/nbt/Tag;)V", "clear" })
+	private void mutate(CallbackInfo info) {
+		if (watchVersion != 0) {
+			NbtMatchCache.onMutation();
+		}
+	}
+
+	@Inject(at = @At("HEAD"), method = { "set(ILnet/minecraft/nbt/Tag;)Lnet/minecraft/nbt/Tag;", "remove(I)Lnet/minecraft/nbt/Tag;", "setTag", "addTag" })
+	private void mutateReturning(CallbackInfoReturnable<?> info) {
+		if (watchVersion != 0) {
+			NbtMatchCache.onMutation();
+		}
+	}
+
+	@Override
+	public long getWatchVersion() {
+		return watchVersion;
+	}
+
+	@Override
+	public void setWatchVersion(long version) {
+		watchVersion = version;
+	}
+
+	@Override
+	public Object getMatchResults() {
+		return null;
+	}
+
+	@Override
+	public void setMatchResults(Object results) {
+	}
+}
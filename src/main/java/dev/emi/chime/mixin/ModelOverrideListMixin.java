@@ -0,0 +1,137 @@
+package dev.emi.chime.mixin;
+
+import java.util.List;
+
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import dev.emi.chime.ChimeClient;
+import dev.emi.chime.CustomPredicateSet;
+import dev.emi.chime.ModelOverrideListWrapper;
+import dev.emi.chime.ModelOverrideWrapper;
+import dev.emi.chime.OverrideIndex;
+import dev.emi.chime.OverrideSelectionCache;
+import dev.emi.chime.PredicateContext;
+import dev.emi.chime.PredicateInput;
+import dev.emi.chime.PredicateProfiler;
+import net.minecraft.client.render.model.BakedModel;
+import net.minecraft.client.render.model.json.ModelOverride;
+import net.minecraft.client.render.model.json.ModelOverrideList;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.item.ItemStack;
+
+@Mixin(ModelOverrideList.class)
+public class ModelOverrideListMixin implements ModelOverrideListWrapper {
+	@Shadow @Final
+	private List<ModelOverride> overrides;
+	@Shadow @Final
+	private List<BakedModel> models;
+	@Unique
+	private OverrideIndex overrideIndex;
+	@Unique
+	private boolean indexed;
+	@Unique
+	private CustomPredicateSet[] specializedSets;
+	@Unique
+	private long specializedVersion = -1;
+
+	@Inject(at = @At("HEAD"), method = "apply", cancellable = true)
+	private void apply(BakedModel model, ItemStack stack, ClientWorld world, LivingEntity entity, CallbackInfoReturnable<BakedModel> info) {
+		if (models.isEmpty() || !ChimeClient.isRenderThread()) {
+			return;
+		}
+		int selected = OverrideSelectionCache.get(this, stack, world, entity);
+		if (selected == OverrideSelectionCache.MISS) {
+			selected = select(stack, world, entity, null, null);
+			OverrideSelectionCache.put(this, stack, world, entity, selected);
+		}
+		BakedModel baked = selected < 0 ? null : models.get(selected);
+		info.setReturnValue(baked == null ? model : baked);
+	}
+
+	@Override
+	public void selectAll(List<ItemStack> stacks, ClientWorld world, LivingEntity entity) {
+		if (models.isEmpty() || stacks.isEmpty()) {
+			return;
+		}
+		PredicateContext context = PredicateContext.prepare(PredicateContext.resolveWorld(stacks.get(0), world, entity), entity);
+		boolean[] contextMatches = new boolean[overrides.size()];
+		for (int i = 0; i < contextMatches.length; i++) {
+			CustomPredicateSet set = getSet(i, context);
+			// While profiling every override is evaluated in full, so it's recorded like outside a batch
+			contextMatches[i] = set != null && (PredicateProfiler.enabled || set.matchesContext(stacks.get(0), context));
+		}
+		for (ItemStack stack : stacks) {
+			if (OverrideSelectionCache.get(this, stack, world, entity) == OverrideSelectionCache.MISS) {
+				OverrideSelectionCache.put(this, stack, world, entity, select(stack, world, entity, context, contextMatches));
+			}
+		}
+	}
+
+	/**
+	 * @param contextMatches when evaluating a batch, which overrides' stack independent predicates matched,
+	 * overrides then only check vanilla predicates and their custom predicates are checked here
+	 * @return the index of the first matching override, or {@code -1}
+	 */
+	@Unique
+	private int select(ItemStack stack, ClientWorld world, LivingEntity entity, PredicateContext context, boolean[] contextMatches) {
+		if (!indexed) {
+			overrideIndex = OverrideIndex.build(overrides);
+			indexed = true;
+		}
+		if (context == null) {
+			context = PredicateContext.prepare(PredicateContext.resolveWorld(stack, world, entity), entity);
+		}
+		if (overrideIndex != null) {
+			for (int i : overrideIndex.getCandidates(stack, context)) {
+				if (matches(i, stack, world, entity, context, contextMatches)) {
+					return i;
+				}
+			}
+		} else {
+			for (int i = 0; i < overrides.size(); i++) {
+				if (matches(i, stack, world, entity, context, contextMatches)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the override's custom predicates specialized for the client world, or {@code null} if it's pruned
+	 */
+	@Unique
+	private CustomPredicateSet getSet(int i, PredicateContext context) {
+		CustomPredicateSet set = ((ModelOverrideWrapper) overrides.get(i)).getCustomPredicates();
+		if (!context.isClientWorld()) {
+			return set;
+		}
+		long version = context.getVersion(PredicateInput.WORLD);
+		if (specializedSets == null || version != specializedVersion) {
+			specializedSets = new CustomPredicateSet[overrides.size()];
+			for (int j = 0; j < specializedSets.length; j++) {
+				specializedSets[j] = ((ModelOverrideWrapper) overrides.get(j)).getCustomPredicates().specialize(context);
+			}
+			specializedVersion = version;
+		}
+		return specializedSets[i];
+	}
+
+	@Unique
+	private boolean matches(int i, ItemStack stack, ClientWorld world, LivingEntity entity, PredicateContext context, boolean[] contextMatches) {
+		ModelOverride override = overrides.get(i);
+		if (contextMatches == null) {
+			// Skip overrides whose dimension predicates can't match in this world before vanilla predicates
+			return getSet(i, context) != null && ((ModelOverrideInvoker) override).invokeMatches(stack, world, entity);
+		}
+		return contextMatches[i] && ((ModelOverrideInvoker) override).invokeMatches(stack, world, entity)
+			&& getSet(i, context).matches(stack, context, override.getModelId());
+	}
+}